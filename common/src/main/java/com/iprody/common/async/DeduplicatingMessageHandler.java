@@ -0,0 +1,135 @@
+package com.iprody.common.async;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Декоратор {@link MessageHandler}, который отбрасывает повторно полученные сообщения.
+ * <p>
+ * Брокер может доставить сообщение ещё раз (например, Kafka после ребалансировки отдаёт записи,
+ * чей offset не успел закоммититься). Декоратор узнаёт такие сообщения по ключу - {@link Message#getMessageId()}
+ * и уточнению, которое задаёт приложение (например, статус ответа), - и не передаёт их обработчику,
+ * без обращения к БД.
+ * <p>
+ * Уже полученные ключи хранятся в {@link SeenMessages} фиксированного размера:
+ * <ul>
+ *     <li>совпадение с точным окном последних {@code windowSize} ключей - сообщение отбрасывается;</li>
+ *     <li>совпадение только с фильтром Блума (ключ старше окна, но моложе {@code horizon}) - вероятный повтор,
+ *     который учитывается в метриках, но обрабатывается: ложное срабатывание фильтра не должно терять
+ *     сообщения.</li>
+ * </ul>
+ * Если обработчик завершился исключением, ключи сообщения забываются, и повторная доставка будет обработана.
+ * <p>
+ * Метрики: счётчик {@code messages.deduplication} с тегами {@code handler} и {@code result}
+ * ({@code new}, {@code duplicate}, {@code probable_duplicate}) и размер окна
+ * {@code messages.deduplication.window}.
+ *
+ * @param <T> тип сообщения, который обрабатывается
+ */
+public class DeduplicatingMessageHandler<T extends Message> implements MessageHandler<T> {
+
+    private final MessageHandler<T> delegate;
+    private final Function<T, Object> qualifier;
+    private final SeenMessages seen;
+    private final Counter newMessages;
+    private final Counter duplicates;
+    private final Counter probableDuplicates;
+
+    /**
+     * @param name          имя обработчика в тегах метрик
+     * @param delegate      обработчик, которому передаются новые сообщения
+     * @param qualifier     уточнение ключа сообщения; может возвращать null
+     * @param windowSize    размер точного окна последних ключей
+     * @param horizon       сколько фильтр Блума помнит ключи
+     * @param meterRegistry реестр метрик
+     */
+    public DeduplicatingMessageHandler(String name, MessageHandler<T> delegate, Function<T, Object> qualifier,
+        int windowSize, Duration horizon, MeterRegistry meterRegistry) {
+        this(name, delegate, qualifier,
+            new SeenMessages(windowSize, horizon.toMillis(), System::currentTimeMillis), meterRegistry);
+    }
+
+    DeduplicatingMessageHandler(String name, MessageHandler<T> delegate, Function<T, Object> qualifier,
+        SeenMessages seen, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.qualifier = qualifier;
+        this.seen = seen;
+        this.newMessages = counter(meterRegistry, name, "new");
+        this.duplicates = counter(meterRegistry, name, "duplicate");
+        this.probableDuplicates = counter(meterRegistry, name, "probable_duplicate");
+        Gauge.builder("messages.deduplication.window", seen, SeenMessages::windowSize)
+            .description("Keys in the exact window of recently handled messages")
+            .tag("handler", name)
+            .register(meterRegistry);
+    }
+
+    @Override
+    public void handle(T message) {
+        final SeenMessages.Key key = markSeen(message);
+        if (key == null) {
+            return;
+        }
+        try {
+            delegate.handle(message);
+        } catch (RuntimeException e) {
+            seen.forget(key);
+            throw e;
+        }
+    }
+
+    @Override
+    public void handleBatch(List<T> messages) {
+        final List<T> fresh = new ArrayList<>(messages.size());
+        final List<SeenMessages.Key> keys = new ArrayList<>(messages.size());
+        for (final T message : messages) {
+            final SeenMessages.Key key = markSeen(message);
+            if (key != null) {
+                fresh.add(message);
+                keys.add(key);
+            }
+        }
+        if (fresh.isEmpty()) {
+            return;
+        }
+        try {
+            delegate.handleBatch(fresh);
+        } catch (RuntimeException e) {
+            keys.forEach(seen::forget);
+            throw e;
+        }
+    }
+
+    // Возвращает ключ нового сообщения или null, если сообщение - точный повтор
+    private SeenMessages.Key markSeen(T message) {
+        final SeenMessages.Key key = new SeenMessages.Key(message.getMessageId(), qualifier.apply(message));
+        if (key.messageId() == null) {
+            // Без идентификатора повтор не распознать - такое сообщение обрабатывается всегда
+            newMessages.increment();
+            return key;
+        }
+        switch (seen.markSeen(key)) {
+            case DUPLICATE -> {
+                duplicates.increment();
+                return null;
+            }
+            case PROBABLE_DUPLICATE -> probableDuplicates.increment();
+            case NEW -> newMessages.increment();
+            default -> throw new IllegalStateException();
+        }
+        return key;
+    }
+
+    private static Counter counter(MeterRegistry meterRegistry, String name, String result) {
+        return Counter.builder("messages.deduplication")
+            .description("Messages received by a deduplicating handler")
+            .tag("handler", name)
+            .tag("result", result)
+            .register(meterRegistry);
+    }
+}
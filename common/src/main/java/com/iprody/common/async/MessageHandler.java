@@ -1,5 +1,7 @@
 package com.iprody.common.async;
 
+import java.util.List;
+
 /**
  * Интерфейс обработчика входящих сообщений.
  *
@@ -12,4 +14,16 @@ public interface MessageHandler<T extends Message> {
      * @param message сообщение для обработки
      */
     void handle(T message);
+
+    /**
+     * Обрабатывает пачку сообщений, полученных за один опрос брокера.
+     * <p>
+     * По умолчанию сообщения обрабатываются по одному в порядке получения. Реализация может
+     * переопределить метод, чтобы обработать всю пачку за одно обращение к хранилищу.
+     *
+     * @param messages сообщения в порядке получения
+     */
+    default void handleBatch(List<T> messages) {
+        messages.forEach(this::handle);
+    }
 }
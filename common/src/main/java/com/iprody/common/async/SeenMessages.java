@@ -0,0 +1,151 @@
+package com.iprody.common.async;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.function.LongSupplier;
+
+/**
+ * Множество уже полученных сообщений фиксированного размера для {@link DeduplicatingMessageHandler}.
+ * <p>
+ * Состоит из двух частей:
+ * <ul>
+ *     <li>точное окно - последние {@code windowSize} ключей в порядке получения. Совпадение с ним
+ *     означает, что сообщение точно уже было;</li>
+ *     <li>фильтр Блума, разбитый на {@value #BUCKETS} корзины по времени. Новые ключи добавляются
+ *     в текущую корзину, а самая старая корзина раз в {@code horizonMillis / BUCKETS} очищается и становится
+ *     текущей, поэтому фильтр помнит ключи примерно за {@code horizonMillis} при неизменном объёме памяти.
+ *     Ключ считается встреченным, если все его биты установлены в одной из корзин; совпадение с фильтром -
+ *     только вероятный повтор: фильтр допускает ложные срабатывания.</li>
+ * </ul>
+ * Все операции выполняются за O(1) и потокобезопасны.
+ */
+final class SeenMessages {
+
+    enum Result {
+        // Ключ встречается впервые
+        NEW,
+        // Ключ есть в точном окне
+        DUPLICATE,
+        // Ключа нет в точном окне, но он, вероятно, встречался раньше в пределах горизонта фильтра
+        PROBABLE_DUPLICATE
+    }
+
+    /**
+     * Ключ сообщения: идентификатор сообщения и уточнение (например, статус ответа).
+     */
+    record Key(UUID messageId, Object qualifier) {
+    }
+
+    static final int BUCKETS = 4;
+
+    // Число хэш-функций и бит фильтра на один ключ окна: ~0.2% ложных срабатываний на корзину
+    // и не больше ~1% на все BUCKETS корзины, если за время одной корзины приходит не больше windowSize ключей
+    private static final int HASHES = 9;
+    private static final int BITS_PER_KEY = 13;
+
+    private final Map<Key, Boolean> window;
+    private final long[][] buckets;
+    private final long bits;
+    private final long bucketMillis;
+    private final LongSupplier clock;
+    private int current;
+    private long currentStartedAt;
+
+    SeenMessages(int windowSize, long horizonMillis, LongSupplier clock) {
+        this.window = new LinkedHashMap<>(windowSize * 4 / 3 + 1) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Boolean> eldest) {
+                return size() > windowSize;
+            }
+        };
+        this.bits = (long) Math.max(windowSize, 1) * BITS_PER_KEY;
+        this.buckets = new long[BUCKETS][(int) ((bits + Long.SIZE - 1) / Long.SIZE)];
+        this.bucketMillis = Math.max(horizonMillis / BUCKETS, 1);
+        this.clock = clock;
+        this.currentStartedAt = clock.getAsLong();
+    }
+
+    /**
+     * Запоминает ключ и сообщает, встречался ли он раньше.
+     */
+    synchronized Result markSeen(Key key) {
+        rotate();
+        if (window.containsKey(key)) {
+            return Result.DUPLICATE;
+        }
+        window.put(key, Boolean.TRUE);
+
+        final long hash = hash(key);
+        final int h1 = (int) hash;
+        final int h2 = (int) (hash >>> 32);
+        // Сначала проверяем все корзины и только потом записываем ключ: иначе при совпадении позиций
+        // двух хэш-функций ключ "находил" бы биты, установленные во время собственной проверки
+        final boolean seen = mightContain(h1, h2);
+        for (int i = 0; i < HASHES; i++) {
+            final long bit = bit(h1, h2, i);
+            buckets[current][(int) (bit >>> 6)] |= 1L << bit;
+        }
+        return seen ? Result.PROBABLE_DUPLICATE : Result.NEW;
+    }
+
+    /**
+     * Забывает ключ в точном окне - например, если сообщение не удалось обработать и оно придёт снова.
+     * Из фильтра Блума ключ удалить нельзя, поэтому повтор будет считаться вероятным, но обработается.
+     */
+    synchronized void forget(Key key) {
+        window.remove(key);
+    }
+
+    synchronized int windowSize() {
+        return window.size();
+    }
+
+    // Ключ, вероятно, есть в фильтре, если все его биты установлены в одной и той же корзине
+    private boolean mightContain(int h1, int h2) {
+        for (final long[] bucket : buckets) {
+            boolean all = true;
+            for (int i = 0; i < HASHES && all; i++) {
+                final long bit = bit(h1, h2, i);
+                all = (bucket[(int) (bit >>> 6)] & 1L << bit) != 0;
+            }
+            if (all) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Позиция i-й хэш-функции (двойное хэширование Кирша - Митценмахера)
+    private long bit(int h1, int h2, int i) {
+        return Integer.toUnsignedLong(h1 + i * h2) % bits;
+    }
+
+    private void rotate() {
+        final long now = clock.getAsLong();
+        final long elapsed = now - currentStartedAt;
+        if (elapsed < bucketMillis) {
+            return;
+        }
+        final long steps = Math.min(elapsed / bucketMillis, BUCKETS);
+        for (int i = 0; i < steps; i++) {
+            current = (current + 1) % BUCKETS;
+            Arrays.fill(buckets[current], 0);
+        }
+        currentStartedAt = steps == BUCKETS ? now : currentStartedAt + steps * bucketMillis;
+    }
+
+    // 64-битный хэш ключа: перемешивание из MurmurHash3 (fmix64)
+    private static long hash(Key key) {
+        long h = key.messageId().getMostSignificantBits() * 31 + key.messageId().getLeastSignificantBits();
+        h = h * 31 + Objects.hashCode(key.qualifier());
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
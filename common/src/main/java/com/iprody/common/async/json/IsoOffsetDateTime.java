@@ -0,0 +1,124 @@
+package com.iprody.common.async.json;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Запись и чтение {@link OffsetDateTime} в ISO-8601 без {@link java.time.format.DateTimeFormatter}.
+ * <p>
+ * Время всегда записывается в одной форме фиксированной длины - {@code 2025-03-01T12:30:15.123456789+03:00}
+ * (для UTC смещение {@code Z}), и её чтение разбирает цифры по известным позициям. Любая другая
+ * форма ISO-8601 (без секунд, с другой точностью и т.п.) читается обычным {@link OffsetDateTime#parse}.
+ */
+final class IsoOffsetDateTime {
+
+    // Длина формы без смещения: yyyy-MM-ddTHH:mm:ss.nnnnnnnnn
+    private static final int LOCAL_LENGTH = 29;
+    private static final int UTC_LENGTH = LOCAL_LENGTH + 1;
+    private static final int OFFSET_LENGTH = LOCAL_LENGTH + 6;
+
+    // Наибольшая длина записанного значения
+    static final int MAX_LENGTH = OFFSET_LENGTH;
+
+    private IsoOffsetDateTime() {
+    }
+
+    /**
+     * Записывает значение в {@code buffer} длиной не меньше {@link #MAX_LENGTH}.
+     *
+     * @return число записанных символов
+     */
+    static int format(OffsetDateTime value, char[] buffer) {
+        final int year = value.getYear();
+        if (year < 0 || year > 9999) {
+            final String text = value.toString();
+            text.getChars(0, text.length(), buffer, 0);
+            return text.length();
+        }
+        digits(buffer, 0, year, 4);
+        buffer[4] = '-';
+        digits(buffer, 5, value.getMonthValue(), 2);
+        buffer[7] = '-';
+        digits(buffer, 8, value.getDayOfMonth(), 2);
+        buffer[10] = 'T';
+        digits(buffer, 11, value.getHour(), 2);
+        buffer[13] = ':';
+        digits(buffer, 14, value.getMinute(), 2);
+        buffer[16] = ':';
+        digits(buffer, 17, value.getSecond(), 2);
+        buffer[19] = '.';
+        digits(buffer, 20, value.getNano(), 9);
+
+        final int offsetSeconds = value.getOffset().getTotalSeconds();
+        if (offsetSeconds == 0) {
+            buffer[LOCAL_LENGTH] = 'Z';
+            return UTC_LENGTH;
+        }
+        if (offsetSeconds % 60 != 0) {
+            // Смещение с секундами в фиксированную форму не помещается
+            final String text = value.toString();
+            text.getChars(0, text.length(), buffer, 0);
+            return text.length();
+        }
+        final int offsetMinutes = Math.abs(offsetSeconds) / 60;
+        buffer[LOCAL_LENGTH] = offsetSeconds < 0 ? '-' : '+';
+        digits(buffer, LOCAL_LENGTH + 1, offsetMinutes / 60, 2);
+        buffer[LOCAL_LENGTH + 3] = ':';
+        digits(buffer, LOCAL_LENGTH + 4, offsetMinutes % 60, 2);
+        return OFFSET_LENGTH;
+    }
+
+    static OffsetDateTime parse(String text) {
+        final int length = text.length();
+        if ((length != UTC_LENGTH && length != OFFSET_LENGTH) || !fixedForm(text)) {
+            return OffsetDateTime.parse(text);
+        }
+        try {
+            final ZoneOffset offset = length == UTC_LENGTH
+                ? ZoneOffset.UTC
+                : ZoneOffset.ofHoursMinutes(
+                    sign(text.charAt(LOCAL_LENGTH)) * number(text, LOCAL_LENGTH + 1, 2),
+                    sign(text.charAt(LOCAL_LENGTH)) * number(text, LOCAL_LENGTH + 4, 2));
+            return OffsetDateTime.of(number(text, 0, 4), number(text, 5, 2), number(text, 8, 2),
+                number(text, 11, 2), number(text, 14, 2), number(text, 17, 2), number(text, 20, 9), offset);
+        } catch (RuntimeException e) {
+            // Недопустимые значения полей (месяц 13 и т.п.) - сообщение об ошибке как у OffsetDateTime.parse
+            return OffsetDateTime.parse(text);
+        }
+    }
+
+    private static boolean fixedForm(String text) {
+        if (text.charAt(4) != '-' || text.charAt(7) != '-' || text.charAt(10) != 'T' || text.charAt(13) != ':'
+            || text.charAt(16) != ':' || text.charAt(19) != '.') {
+            return false;
+        }
+        final char offset = text.charAt(LOCAL_LENGTH);
+        return text.length() == UTC_LENGTH
+            ? offset == 'Z'
+            : (offset == '+' || offset == '-') && text.charAt(LOCAL_LENGTH + 3) == ':';
+    }
+
+    private static int sign(char c) {
+        return c == '-' ? -1 : 1;
+    }
+
+    private static int number(String text, int from, int length) {
+        int value = 0;
+        for (int i = from; i < from + length; i++) {
+            final int digit = text.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                throw new DateTimeParseException("Not a digit at " + i, text, i);
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private static void digits(char[] buffer, int from, int value, int length) {
+        for (int i = from + length - 1; i >= from; i--) {
+            buffer[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.iprody.common.async.json;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Регистрирует {@link XPaymentAdapterJsonModule} в ObjectMapper приложения: Spring Boot добавляет
+ * в него все бины типа {@link com.fasterxml.jackson.databind.Module}.
+ * <p>
+ * Подключается в приложении через {@code @Import(XPaymentAdapterJsonConfig.class)}.
+ */
+@Configuration
+public class XPaymentAdapterJsonConfig {
+
+    @Bean
+    public XPaymentAdapterJsonModule xPaymentAdapterJsonModule() {
+        return new XPaymentAdapterJsonModule();
+    }
+}
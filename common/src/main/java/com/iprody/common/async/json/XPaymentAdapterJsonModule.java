@@ -0,0 +1,233 @@
+package com.iprody.common.async.json;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.iprody.common.async.XPaymentAdapterRequestMessage;
+import com.iprody.common.async.XPaymentAdapterResponseMessage;
+import com.iprody.common.async.XPaymentAdapterStatus;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Модуль Jackson с потоковыми кодеками сообщений XPayment Adapter.
+ * <p>
+ * Сообщения пишутся и читаются напрямую через {@link JsonGenerator} и {@link JsonParser}, без интроспекции
+ * геттеров и сеттеров; имена полей записываются из заранее закодированных {@link SerializedString}.
+ * JSON совместим с тем, что пишет Jackson для этих классов по умолчанию: поля с теми же именами,
+ * occurredAt - строка ISO-8601 (см. {@link IsoOffsetDateTime}). При чтении принимается и прежняя запись
+ * времени числом секунд от начала эпохи, а неизвестные поля (например, messageId) пропускаются.
+ * Поля со значением null не записываются.
+ */
+public class XPaymentAdapterJsonModule extends SimpleModule {
+
+    private static final SerializableString PAYMENT_GUID = new SerializedString("paymentGuid");
+    private static final SerializableString AMOUNT = new SerializedString("amount");
+    private static final SerializableString CURRENCY = new SerializedString("currency");
+    private static final SerializableString TRANSACTION_REF_ID = new SerializedString("transactionRefId");
+    private static final SerializableString STATUS = new SerializedString("status");
+    private static final SerializableString OCCURRED_AT = new SerializedString("occurredAt");
+
+    public XPaymentAdapterJsonModule() {
+        super("XPaymentAdapterJsonModule");
+        addSerializer(XPaymentAdapterRequestMessage.class, new RequestSerializer());
+        addDeserializer(XPaymentAdapterRequestMessage.class, new RequestDeserializer());
+        addSerializer(XPaymentAdapterResponseMessage.class, new ResponseSerializer());
+        addDeserializer(XPaymentAdapterResponseMessage.class, new ResponseDeserializer());
+    }
+
+    static final class RequestSerializer extends StdSerializer<XPaymentAdapterRequestMessage> {
+
+        RequestSerializer() {
+            super(XPaymentAdapterRequestMessage.class);
+        }
+
+        @Override
+        public void serialize(XPaymentAdapterRequestMessage message, JsonGenerator gen, SerializerProvider provider)
+            throws IOException {
+            gen.writeStartObject(message);
+            writeUuid(gen, PAYMENT_GUID, message.getPaymentGuid());
+            writeAmount(gen, message.getAmount());
+            writeString(gen, CURRENCY, message.getCurrency());
+            writeTimestamp(gen, message.getOccurredAt());
+            gen.writeEndObject();
+        }
+    }
+
+    static final class ResponseSerializer extends StdSerializer<XPaymentAdapterResponseMessage> {
+
+        ResponseSerializer() {
+            super(XPaymentAdapterResponseMessage.class);
+        }
+
+        @Override
+        public void serialize(XPaymentAdapterResponseMessage message, JsonGenerator gen, SerializerProvider provider)
+            throws IOException {
+            gen.writeStartObject(message);
+            writeUuid(gen, PAYMENT_GUID, message.getPaymentGuid());
+            writeAmount(gen, message.getAmount());
+            writeString(gen, CURRENCY, message.getCurrency());
+            writeUuid(gen, TRANSACTION_REF_ID, message.getTransactionRefId());
+            writeString(gen, STATUS, message.getStatus() == null ? null : message.getStatus().name());
+            writeTimestamp(gen, message.getOccurredAt());
+            gen.writeEndObject();
+        }
+    }
+
+    static final class RequestDeserializer extends StdDeserializer<XPaymentAdapterRequestMessage> {
+
+        RequestDeserializer() {
+            super(XPaymentAdapterRequestMessage.class);
+        }
+
+        @Override
+        public XPaymentAdapterRequestMessage deserialize(JsonParser p, DeserializationContext ctxt)
+            throws IOException {
+            final XPaymentAdapterRequestMessage message = new XPaymentAdapterRequestMessage();
+            for (String field = startObject(p, ctxt, this); field != null; field = p.nextFieldName()) {
+                p.nextToken();
+                switch (field) {
+                    case "paymentGuid" -> message.setPaymentGuid(readUuid(p, ctxt));
+                    case "amount" -> message.setAmount(readAmount(p, ctxt));
+                    case "currency" -> message.setCurrency(readString(p));
+                    case "occurredAt" -> message.setOccurredAt(readTimestamp(p, ctxt));
+                    default -> p.skipChildren();
+                }
+            }
+            return message;
+        }
+    }
+
+    static final class ResponseDeserializer extends StdDeserializer<XPaymentAdapterResponseMessage> {
+
+        ResponseDeserializer() {
+            super(XPaymentAdapterResponseMessage.class);
+        }
+
+        @Override
+        public XPaymentAdapterResponseMessage deserialize(JsonParser p, DeserializationContext ctxt)
+            throws IOException {
+            final XPaymentAdapterResponseMessage message = new XPaymentAdapterResponseMessage();
+            for (String field = startObject(p, ctxt, this); field != null; field = p.nextFieldName()) {
+                p.nextToken();
+                switch (field) {
+                    case "paymentGuid" -> message.setPaymentGuid(readUuid(p, ctxt));
+                    case "amount" -> message.setAmount(readAmount(p, ctxt));
+                    case "currency" -> message.setCurrency(readString(p));
+                    case "transactionRefId" -> message.setTransactionRefId(readUuid(p, ctxt));
+                    case "status" -> message.setStatus(readStatus(p, ctxt));
+                    case "occurredAt" -> message.setOccurredAt(readTimestamp(p, ctxt));
+                    default -> p.skipChildren();
+                }
+            }
+            return message;
+        }
+    }
+
+    private static void writeUuid(JsonGenerator gen, SerializableString name, UUID value) throws IOException {
+        if (value != null) {
+            gen.writeFieldName(name);
+            gen.writeString(value.toString());
+        }
+    }
+
+    private static void writeAmount(JsonGenerator gen, BigDecimal value) throws IOException {
+        if (value != null) {
+            gen.writeFieldName(AMOUNT);
+            gen.writeNumber(value);
+        }
+    }
+
+    private static void writeString(JsonGenerator gen, SerializableString name, String value) throws IOException {
+        if (value != null) {
+            gen.writeFieldName(name);
+            gen.writeString(value);
+        }
+    }
+
+    private static void writeTimestamp(JsonGenerator gen, OffsetDateTime value) throws IOException {
+        if (value != null) {
+            final char[] buffer = new char[IsoOffsetDateTime.MAX_LENGTH];
+            final int length = IsoOffsetDateTime.format(value, buffer);
+            gen.writeFieldName(OCCURRED_AT);
+            gen.writeString(buffer, 0, length);
+        }
+    }
+
+    // Возвращает имя первого поля объекта или null для пустого объекта
+    private static String startObject(JsonParser p, DeserializationContext ctxt, StdDeserializer<?> deserializer)
+        throws IOException {
+        if (p.isExpectedStartObjectToken()) {
+            return p.nextFieldName();
+        }
+        if (p.hasToken(JsonToken.FIELD_NAME)) {
+            return p.currentName();
+        }
+        if (p.hasToken(JsonToken.END_OBJECT)) {
+            return null;
+        }
+        return (String) ctxt.handleUnexpectedToken(deserializer.handledType(), p);
+    }
+
+    private static String readString(JsonParser p) throws IOException {
+        return p.hasToken(JsonToken.VALUE_NULL) ? null : p.getText();
+    }
+
+    private static UUID readUuid(JsonParser p, DeserializationContext ctxt) throws IOException {
+        return p.hasToken(JsonToken.VALUE_NULL) ? null : parseText(p, ctxt, UUID.class, UUID::fromString);
+    }
+
+    private static XPaymentAdapterStatus readStatus(JsonParser p, DeserializationContext ctxt) throws IOException {
+        return p.hasToken(JsonToken.VALUE_NULL)
+            ? null
+            : parseText(p, ctxt, XPaymentAdapterStatus.class, XPaymentAdapterStatus::valueOf);
+    }
+
+    private static BigDecimal readAmount(JsonParser p, DeserializationContext ctxt) throws IOException {
+        if (p.hasToken(JsonToken.VALUE_NULL)) {
+            return null;
+        }
+        return p.currentToken().isNumeric() ? p.getDecimalValue() : parseText(p, ctxt, BigDecimal.class,
+            BigDecimal::new);
+    }
+
+    // Строка, которая не разбирается в нужный тип (неизвестный статус, некорректный UUID), - InvalidFormatException,
+    // как в стандартных десериализаторах Jackson, а не сырое IllegalArgumentException
+    private static <T> T parseText(JsonParser p, DeserializationContext ctxt, Class<T> type,
+        Function<String, T> parser) throws IOException {
+        final String text = p.getText();
+        try {
+            return parser.apply(text);
+        } catch (IllegalArgumentException | DateTimeException e) {
+            throw ctxt.weirdStringException(text, type, e.getMessage());
+        }
+    }
+
+    private static OffsetDateTime readTimestamp(JsonParser p, DeserializationContext ctxt) throws IOException {
+        if (p.hasToken(JsonToken.VALUE_NULL)) {
+            return null;
+        }
+        if (p.currentToken().isNumeric()) {
+            // Прежняя запись JavaTimeModule при WRITE_DATES_AS_TIMESTAMPS: секунды от начала эпохи с дробной частью
+            final BigDecimal seconds = p.getDecimalValue();
+            final long epochSecond = seconds.longValue();
+            final int nanos = seconds.subtract(BigDecimal.valueOf(epochSecond)).movePointRight(9).intValue();
+            return Instant.ofEpochSecond(epochSecond, nanos).atOffset(ZoneOffset.UTC);
+        }
+        return parseText(p, ctxt, OffsetDateTime.class, IsoOffsetDateTime::parse);
+    }
+}
@@ -0,0 +1,20 @@
+package com.iprody.common.async.kafka;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Общая конфигурация отправки в Kafka для приложений сервиса.
+ * <p>
+ * Подключается в приложении через {@code @Import(KafkaProducerConfig.class)} вместе с профилем
+ * producer {@code classpath:kafka-producer.yaml} (spring.config.import).
+ */
+@Configuration
+public class KafkaProducerConfig {
+
+    @Bean
+    public KafkaSendMetrics kafkaSendMetrics(MeterRegistry meterRegistry) {
+        return new KafkaSendMetrics(meterRegistry);
+    }
+}
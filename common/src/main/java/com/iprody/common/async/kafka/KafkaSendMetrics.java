@@ -0,0 +1,59 @@
+package com.iprody.common.async.kafka;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Отправка сообщений в Kafka с учётом времени и исхода отправки.
+ * <p>
+ * Время от вызова {@link KafkaTemplate#send} до подтверждения брокером (или ошибки) публикуется
+ * как таймер {@value #METRIC_NAME} с тегами {@code topic} и {@code outcome} ({@code success}
+ * или {@code failure}). Число неудачных отправок - счётчик этого таймера с {@code outcome=failure}.
+ */
+public class KafkaSendMetrics {
+
+    /**
+     * Имя таймера отправки.
+     */
+    public static final String METRIC_NAME = "kafka.producer.send";
+
+    private final MeterRegistry meterRegistry;
+
+    public KafkaSendMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Отправляет сообщение и записывает время до его подтверждения брокером.
+     *
+     * @param template шаблон, через который отправляется сообщение
+     * @param topic    топик
+     * @param key      ключ сообщения
+     * @param value    сообщение
+     * @return future, который завершается, когда брокер подтвердит запись или отправка не удастся
+     */
+    public <K, V> CompletableFuture<SendResult<K, V>> send(KafkaTemplate<K, V> template, String topic, K key, V value) {
+        final Timer.Sample sample = Timer.start(meterRegistry);
+        final CompletableFuture<SendResult<K, V>> result;
+        try {
+            result = template.send(topic, key, value);
+        } catch (RuntimeException e) {
+            // Например, не удалось получить метаданные топика за max.block.ms
+            sample.stop(timer(topic, "failure"));
+            throw e;
+        }
+        return result.whenComplete((sent, error) -> sample.stop(timer(topic, error == null ? "success" : "failure")));
+    }
+
+    private Timer timer(String topic, String outcome) {
+        return Timer.builder(METRIC_NAME)
+            .description("Time until a Kafka record is acknowledged by the broker")
+            .tag("topic", topic)
+            .tag("outcome", outcome)
+            .register(meterRegistry);
+    }
+}
@@ -0,0 +1,169 @@
+package com.iprody.common.async.kafka;
+
+import com.iprody.common.async.XPaymentAdapterStatus;
+import org.apache.kafka.common.errors.SerializationException;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.UUID;
+
+/**
+ * Компактный двоичный формат сообщений XPayment Adapter в Kafka (версия 1).
+ * <p>
+ * Запись имеет фиксированную длину, поля идут в фиксированном порядке, big-endian:
+ * <pre>
+ * 1 байт   версия формата ({@value #VERSION_1})
+ * 1 байт   маска заполненных полей (отсутствующее поле занимает своё место, заполненное нулями)
+ * 16 байт  paymentGuid
+ * 8 байт   amount - unscaled value
+ * 1 байт   amount - scale
+ * 3 байта  currency, ISO 4217 в ASCII
+ * 8 байт   occurredAt - микросекунды от начала эпохи, UTC
+ * только в ответе:
+ * 16 байт  transactionRefId
+ * 1 байт   status
+ * </pre>
+ * Новая версия формата получает новый номер; десериализаторы читают все известные им версии,
+ * поэтому сначала обновляются получатели, затем отправители. JSON-записи прежнего формата начинаются
+ * с символа '{', который не совпадает ни с одним номером версии, и тоже читаются десериализаторами.
+ * <p>
+ * occurredAt передаётся как момент времени: после чтения смещение всегда UTC.
+ */
+final class XPaymentAdapterBinaryFormat {
+
+    static final byte VERSION_1 = 1;
+
+    // Длина записи запроса и ответа в версии 1
+    static final int REQUEST_SIZE = 1 + 1 + 16 + 8 + 1 + 3 + 8;
+    static final int RESPONSE_SIZE = REQUEST_SIZE + 16 + 1;
+
+    // Биты маски заполненных полей
+    static final int PAYMENT_GUID = 1;
+    static final int AMOUNT = 1 << 1;
+    static final int CURRENCY = 1 << 2;
+    static final int OCCURRED_AT = 1 << 3;
+    static final int TRANSACTION_REF_ID = 1 << 4;
+    static final int STATUS = 1 << 5;
+
+    private static final int CURRENCY_LENGTH = 3;
+    private static final long MICROS_PER_SECOND = 1_000_000L;
+
+    private XPaymentAdapterBinaryFormat() {
+    }
+
+    static int presence(Object value, int bit) {
+        return value == null ? 0 : bit;
+    }
+
+    static boolean isJson(byte[] data) {
+        return data.length > 0 && data[0] == '{';
+    }
+
+    /**
+     * Проверяет версию и длину записи и возвращает буфер, установленный на маску заполненных полей.
+     */
+    static ByteBuffer open(byte[] data, int size) {
+        final byte version = data.length > 0 ? data[0] : -1;
+        if (version != VERSION_1) {
+            throw new SerializationException("Unsupported XPayment Adapter message format version " + version);
+        }
+        if (data.length != size) {
+            throw new SerializationException("XPayment Adapter message of " + data.length
+                + " bytes, expected " + size);
+        }
+        return ByteBuffer.wrap(data, 1, size - 1);
+    }
+
+    static void putUuid(ByteBuffer buffer, UUID value) {
+        buffer.putLong(value == null ? 0 : value.getMostSignificantBits());
+        buffer.putLong(value == null ? 0 : value.getLeastSignificantBits());
+    }
+
+    static UUID getUuid(ByteBuffer buffer, boolean present) {
+        final long most = buffer.getLong();
+        final long least = buffer.getLong();
+        return present ? new UUID(most, least) : null;
+    }
+
+    static void putAmount(ByteBuffer buffer, BigDecimal value) {
+        if (value == null) {
+            buffer.putLong(0).put((byte) 0);
+            return;
+        }
+        final BigInteger unscaled = value.unscaledValue();
+        if (unscaled.bitLength() > Long.SIZE - 1 || value.scale() != (byte) value.scale()) {
+            throw new SerializationException("Amount " + value + " does not fit the binary format");
+        }
+        buffer.putLong(unscaled.longValue()).put((byte) value.scale());
+    }
+
+    static BigDecimal getAmount(ByteBuffer buffer, boolean present) {
+        final long unscaled = buffer.getLong();
+        final byte scale = buffer.get();
+        return present ? BigDecimal.valueOf(unscaled, scale) : null;
+    }
+
+    static void putCurrency(ByteBuffer buffer, String value) {
+        if (value == null) {
+            buffer.put(new byte[CURRENCY_LENGTH]);
+            return;
+        }
+        if (value.length() != CURRENCY_LENGTH || !StandardCharsets.US_ASCII.newEncoder().canEncode(value)) {
+            throw new SerializationException("Currency '" + value + "' is not an ISO 4217 code");
+        }
+        buffer.put(value.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    static String getCurrency(ByteBuffer buffer, boolean present) {
+        final byte[] bytes = new byte[CURRENCY_LENGTH];
+        buffer.get(bytes);
+        return present ? new String(bytes, StandardCharsets.US_ASCII) : null;
+    }
+
+    static void putTimestamp(ByteBuffer buffer, OffsetDateTime value) {
+        if (value == null) {
+            buffer.putLong(0);
+            return;
+        }
+        final Instant instant = value.toInstant();
+        buffer.putLong(Math.addExact(Math.multiplyExact(instant.getEpochSecond(), MICROS_PER_SECOND),
+            instant.getNano() / 1_000));
+    }
+
+    static OffsetDateTime getTimestamp(ByteBuffer buffer, boolean present) {
+        final long micros = buffer.getLong();
+        return present ? Instant.EPOCH.plus(micros, ChronoUnit.MICROS).atOffset(ZoneOffset.UTC) : null;
+    }
+
+    // Коды статусов зафиксированы явно: порядок констант в enum не является частью формата
+    static void putStatus(ByteBuffer buffer, XPaymentAdapterStatus value) {
+        if (value == null) {
+            buffer.put((byte) 0);
+            return;
+        }
+        buffer.put(switch (value) {
+            case PROCESSING -> (byte) 1;
+            case CANCELED -> (byte) 2;
+            case SUCCEEDED -> (byte) 3;
+        });
+    }
+
+    static XPaymentAdapterStatus getStatus(ByteBuffer buffer, boolean present) {
+        final byte code = buffer.get();
+        if (!present) {
+            return null;
+        }
+        return switch (code) {
+            case 1 -> XPaymentAdapterStatus.PROCESSING;
+            case 2 -> XPaymentAdapterStatus.CANCELED;
+            case 3 -> XPaymentAdapterStatus.SUCCEEDED;
+            default -> throw new SerializationException("Unknown XPayment Adapter status code " + code);
+        };
+    }
+}
@@ -0,0 +1,34 @@
+package com.iprody.common.async.kafka;
+
+import com.iprody.common.async.XPaymentAdapterRequestMessage;
+import com.iprody.common.async.XPaymentAdapterResponseMessage;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Serializer;
+
+/**
+ * Сериализатор сообщений XPayment Adapter обоих типов, который выбирает формат по типу сообщения.
+ * <p>
+ * Нужен приложению с одним KafkaTemplate, которое отправляет сообщения одного типа, а получает другого
+ * через {@code @RetryableTopic}: retry-топики и DLT публикуются тем же шаблоном, и непрошедший обработку
+ * запрос должен сериализоваться как запрос, а ответ - как ответ.
+ */
+public class XPaymentAdapterMessageSerializer implements Serializer<Object> {
+
+    private final XPaymentAdapterRequestMessageSerializer requests = new XPaymentAdapterRequestMessageSerializer();
+    private final XPaymentAdapterResponseMessageSerializer responses = new XPaymentAdapterResponseMessageSerializer();
+
+    @Override
+    public byte[] serialize(String topic, Object message) {
+        if (message == null) {
+            return null;
+        }
+        if (message instanceof XPaymentAdapterResponseMessage response) {
+            return responses.serialize(topic, response);
+        }
+        if (message instanceof XPaymentAdapterRequestMessage request) {
+            return requests.serialize(topic, request);
+        }
+        throw new SerializationException("Unsupported XPayment Adapter message type "
+            + message.getClass().getName() + " for topic " + topic);
+    }
+}
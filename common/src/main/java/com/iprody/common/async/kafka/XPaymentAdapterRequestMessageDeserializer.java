@@ -0,0 +1,49 @@
+package com.iprody.common.async.kafka;
+
+import com.iprody.common.async.XPaymentAdapterRequestMessage;
+import com.iprody.common.async.json.XPaymentAdapterJsonModule;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.springframework.kafka.support.JacksonUtils;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+
+import java.nio.ByteBuffer;
+
+import static com.iprody.common.async.kafka.XPaymentAdapterBinaryFormat.*;
+
+/**
+ * Десериализатор {@link XPaymentAdapterRequestMessage} из компактного двоичного формата
+ * {@link XPaymentAdapterBinaryFormat} для Kafka consumer (spring.kafka.consumer.value-deserializer).
+ * <p>
+ * Записи в прежнем формате JSON (от ещё не обновлённых отправителей или оставшиеся в топике)
+ * читаются через {@link JsonDeserializer} без заголовков типа, потоковым кодеком {@link XPaymentAdapterJsonModule}.
+ */
+public class XPaymentAdapterRequestMessageDeserializer implements Deserializer<XPaymentAdapterRequestMessage> {
+
+    private final JsonDeserializer<XPaymentAdapterRequestMessage> json =
+        new JsonDeserializer<>(XPaymentAdapterRequestMessage.class,
+            JacksonUtils.enhancedObjectMapper().registerModule(new XPaymentAdapterJsonModule()), false);
+
+    @Override
+    public XPaymentAdapterRequestMessage deserialize(String topic, byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        if (isJson(data)) {
+            return json.deserialize(topic, data);
+        }
+
+        final ByteBuffer buffer = open(data, REQUEST_SIZE);
+        final int presence = buffer.get();
+        final XPaymentAdapterRequestMessage message = new XPaymentAdapterRequestMessage();
+        message.setPaymentGuid(getUuid(buffer, (presence & PAYMENT_GUID) != 0));
+        message.setAmount(getAmount(buffer, (presence & AMOUNT) != 0));
+        message.setCurrency(getCurrency(buffer, (presence & CURRENCY) != 0));
+        message.setOccurredAt(getTimestamp(buffer, (presence & OCCURRED_AT) != 0));
+        return message;
+    }
+
+    @Override
+    public void close() {
+        json.close();
+    }
+}
@@ -0,0 +1,35 @@
+package com.iprody.common.async.kafka;
+
+import com.iprody.common.async.XPaymentAdapterRequestMessage;
+import org.apache.kafka.common.serialization.Serializer;
+
+import java.nio.ByteBuffer;
+
+import static com.iprody.common.async.kafka.XPaymentAdapterBinaryFormat.*;
+
+/**
+ * Сериализатор {@link XPaymentAdapterRequestMessage} в компактный двоичный формат
+ * {@link XPaymentAdapterBinaryFormat} для Kafka producer (spring.kafka.producer.value-serializer).
+ */
+public class XPaymentAdapterRequestMessageSerializer implements Serializer<XPaymentAdapterRequestMessage> {
+
+    @Override
+    public byte[] serialize(String topic, XPaymentAdapterRequestMessage message) {
+        if (message == null) {
+            return null;
+        }
+        final int presence = presence(message.getPaymentGuid(), PAYMENT_GUID)
+            | presence(message.getAmount(), AMOUNT)
+            | presence(message.getCurrency(), CURRENCY)
+            | presence(message.getOccurredAt(), OCCURRED_AT);
+
+        final ByteBuffer buffer = ByteBuffer.allocate(REQUEST_SIZE)
+            .put(VERSION_1)
+            .put((byte) presence);
+        putUuid(buffer, message.getPaymentGuid());
+        putAmount(buffer, message.getAmount());
+        putCurrency(buffer, message.getCurrency());
+        putTimestamp(buffer, message.getOccurredAt());
+        return buffer.array();
+    }
+}
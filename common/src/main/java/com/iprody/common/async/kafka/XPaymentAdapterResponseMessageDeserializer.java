@@ -0,0 +1,51 @@
+package com.iprody.common.async.kafka;
+
+import com.iprody.common.async.XPaymentAdapterResponseMessage;
+import com.iprody.common.async.json.XPaymentAdapterJsonModule;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.springframework.kafka.support.JacksonUtils;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+
+import java.nio.ByteBuffer;
+
+import static com.iprody.common.async.kafka.XPaymentAdapterBinaryFormat.*;
+
+/**
+ * Десериализатор {@link XPaymentAdapterResponseMessage} из компактного двоичного формата
+ * {@link XPaymentAdapterBinaryFormat} для Kafka consumer (spring.kafka.consumer.value-deserializer).
+ * <p>
+ * Записи в прежнем формате JSON (от ещё не обновлённых отправителей или оставшиеся в топике)
+ * читаются через {@link JsonDeserializer} без заголовков типа, потоковым кодеком {@link XPaymentAdapterJsonModule}.
+ */
+public class XPaymentAdapterResponseMessageDeserializer implements Deserializer<XPaymentAdapterResponseMessage> {
+
+    private final JsonDeserializer<XPaymentAdapterResponseMessage> json =
+        new JsonDeserializer<>(XPaymentAdapterResponseMessage.class,
+            JacksonUtils.enhancedObjectMapper().registerModule(new XPaymentAdapterJsonModule()), false);
+
+    @Override
+    public XPaymentAdapterResponseMessage deserialize(String topic, byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        if (isJson(data)) {
+            return json.deserialize(topic, data);
+        }
+
+        final ByteBuffer buffer = open(data, RESPONSE_SIZE);
+        final int presence = buffer.get();
+        final XPaymentAdapterResponseMessage message = new XPaymentAdapterResponseMessage();
+        message.setPaymentGuid(getUuid(buffer, (presence & PAYMENT_GUID) != 0));
+        message.setAmount(getAmount(buffer, (presence & AMOUNT) != 0));
+        message.setCurrency(getCurrency(buffer, (presence & CURRENCY) != 0));
+        message.setOccurredAt(getTimestamp(buffer, (presence & OCCURRED_AT) != 0));
+        message.setTransactionRefId(getUuid(buffer, (presence & TRANSACTION_REF_ID) != 0));
+        message.setStatus(getStatus(buffer, (presence & STATUS) != 0));
+        return message;
+    }
+
+    @Override
+    public void close() {
+        json.close();
+    }
+}
@@ -0,0 +1,39 @@
+package com.iprody.common.async.kafka;
+
+import com.iprody.common.async.XPaymentAdapterResponseMessage;
+import org.apache.kafka.common.serialization.Serializer;
+
+import java.nio.ByteBuffer;
+
+import static com.iprody.common.async.kafka.XPaymentAdapterBinaryFormat.*;
+
+/**
+ * Сериализатор {@link XPaymentAdapterResponseMessage} в компактный двоичный формат
+ * {@link XPaymentAdapterBinaryFormat} для Kafka producer (spring.kafka.producer.value-serializer).
+ */
+public class XPaymentAdapterResponseMessageSerializer implements Serializer<XPaymentAdapterResponseMessage> {
+
+    @Override
+    public byte[] serialize(String topic, XPaymentAdapterResponseMessage message) {
+        if (message == null) {
+            return null;
+        }
+        final int presence = presence(message.getPaymentGuid(), PAYMENT_GUID)
+            | presence(message.getAmount(), AMOUNT)
+            | presence(message.getCurrency(), CURRENCY)
+            | presence(message.getOccurredAt(), OCCURRED_AT)
+            | presence(message.getTransactionRefId(), TRANSACTION_REF_ID)
+            | presence(message.getStatus(), STATUS);
+
+        final ByteBuffer buffer = ByteBuffer.allocate(RESPONSE_SIZE)
+            .put(VERSION_1)
+            .put((byte) presence);
+        putUuid(buffer, message.getPaymentGuid());
+        putAmount(buffer, message.getAmount());
+        putCurrency(buffer, message.getCurrency());
+        putTimestamp(buffer, message.getOccurredAt());
+        putUuid(buffer, message.getTransactionRefId());
+        putStatus(buffer, message.getStatus());
+        return buffer.array();
+    }
+}
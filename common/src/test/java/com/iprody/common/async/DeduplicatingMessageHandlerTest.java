@@ -0,0 +1,164 @@
+package com.iprody.common.async;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DeduplicatingMessageHandlerTest {
+
+    private static final long HORIZON_MS = 60_000;
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final AtomicLong clock = new AtomicLong();
+    private final List<XPaymentAdapterResponseMessage> handled = new ArrayList<>();
+    private final SeenMessages seen = new SeenMessages(1000, HORIZON_MS, clock::get);
+    private final DeduplicatingMessageHandler<XPaymentAdapterResponseMessage> handler =
+        new DeduplicatingMessageHandler<>("test", new RecordingHandler(), XPaymentAdapterResponseMessage::getStatus,
+            seen, registry);
+
+    @Test
+    void handle_RedeliveredMessage_IsDropped() {
+        // given
+        UUID guid = UUID.randomUUID();
+
+        // when
+        handler.handle(response(guid, XPaymentAdapterStatus.SUCCEEDED));
+        handler.handle(response(guid, XPaymentAdapterStatus.SUCCEEDED));
+
+        // then
+        assertThat(handled).hasSize(1);
+        assertThat(count("new")).isEqualTo(1);
+        assertThat(count("duplicate")).isEqualTo(1);
+        assertThat(registry.get("messages.deduplication.window").gauge().value()).isEqualTo(1);
+    }
+
+    @Test
+    void handle_SamePaymentWithAnotherStatus_IsHandled() {
+        // given
+        UUID guid = UUID.randomUUID();
+
+        // when
+        handler.handle(response(guid, XPaymentAdapterStatus.PROCESSING));
+        handler.handle(response(guid, XPaymentAdapterStatus.SUCCEEDED));
+
+        // then
+        assertThat(handled).extracting(XPaymentAdapterResponseMessage::getStatus)
+            .containsExactly(XPaymentAdapterStatus.PROCESSING, XPaymentAdapterStatus.SUCCEEDED);
+        assertThat(count("duplicate")).isZero();
+    }
+
+    @Test
+    void handle_WhenDelegateFails_RedeliveryIsHandled() {
+        // given
+        List<XPaymentAdapterResponseMessage> attempts = new ArrayList<>();
+        DeduplicatingMessageHandler<XPaymentAdapterResponseMessage> failing = new DeduplicatingMessageHandler<>(
+            "failing", message -> {
+                attempts.add(message);
+                if (attempts.size() == 1) {
+                    throw new IllegalStateException("database is unavailable");
+                }
+            }, XPaymentAdapterResponseMessage::getStatus, new SeenMessages(1000, HORIZON_MS, clock::get), registry);
+        XPaymentAdapterResponseMessage message = response(UUID.randomUUID(), XPaymentAdapterStatus.SUCCEEDED);
+
+        // when
+        assertThatThrownBy(() -> failing.handle(message)).isInstanceOf(IllegalStateException.class);
+        failing.handle(message);
+
+        // then
+        assertThat(attempts).hasSize(2);
+    }
+
+    @Test
+    void handleBatch_DropsRedeliveredAndRepeatedInBatch() {
+        // given
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        handler.handle(response(first, XPaymentAdapterStatus.SUCCEEDED));
+        handled.clear();
+
+        // when
+        handler.handleBatch(List.of(
+            response(first, XPaymentAdapterStatus.SUCCEEDED),
+            response(second, XPaymentAdapterStatus.SUCCEEDED),
+            response(second, XPaymentAdapterStatus.SUCCEEDED)));
+
+        // then
+        assertThat(handled).extracting(XPaymentAdapterResponseMessage::getPaymentGuid).containsExactly(second);
+        assertThat(count("duplicate")).isEqualTo(2);
+    }
+
+    @Test
+    void seenMessages_KeyOutsideWindow_IsProbableDuplicateUntilHorizonPasses() {
+        // given
+        SeenMessages.Key key = new SeenMessages.Key(UUID.randomUUID(), XPaymentAdapterStatus.SUCCEEDED);
+        assertThat(seen.markSeen(key)).isEqualTo(SeenMessages.Result.NEW);
+        seen.forget(key);
+
+        // when / then: ключа нет в окне, но он ещё в фильтре Блума
+        clock.addAndGet(HORIZON_MS / SeenMessages.BUCKETS);
+        assertThat(seen.markSeen(key)).isEqualTo(SeenMessages.Result.PROBABLE_DUPLICATE);
+        seen.forget(key);
+
+        // when / then: все корзины фильтра сменились
+        clock.addAndGet(HORIZON_MS);
+        assertThat(seen.markSeen(key)).isEqualTo(SeenMessages.Result.NEW);
+    }
+
+    @Test
+    void seenMessages_FalsePositiveRateAtCapacity_StaysAroundOnePercent() {
+        // given: все корзины фильтра заполнены ключами до расчётной ёмкости - windowSize ключей на корзину
+        int windowSize = 20_000;
+        SeenMessages full = new SeenMessages(windowSize, HORIZON_MS, clock::get);
+        Random random = new Random(42);
+        for (int bucket = 0; bucket < SeenMessages.BUCKETS - 1; bucket++) {
+            for (int i = 0; i < windowSize; i++) {
+                full.markSeen(new SeenMessages.Key(new UUID(random.nextLong(), random.nextLong()), null));
+            }
+            clock.addAndGet(HORIZON_MS / SeenMessages.BUCKETS);
+        }
+
+        // when: последняя корзина заполняется новыми, ни разу не встречавшимися ключами
+        int falsePositives = 0;
+        for (int i = 0; i < windowSize; i++) {
+            SeenMessages.Key key = new SeenMessages.Key(new UUID(random.nextLong(), random.nextLong()), null);
+            if (full.markSeen(key) == SeenMessages.Result.PROBABLE_DUPLICATE) {
+                falsePositives++;
+            }
+        }
+
+        // then: расчёт - ~0.2% на заполненную корзину, ~0.7% на все корзины
+        assertThat((double) falsePositives / windowSize).isLessThan(0.01);
+    }
+
+    private double count(String result) {
+        return registry.get("messages.deduplication").tag("handler", "test").tag("result", result).counter().count();
+    }
+
+    private static XPaymentAdapterResponseMessage response(UUID guid, XPaymentAdapterStatus status) {
+        XPaymentAdapterResponseMessage message = new XPaymentAdapterResponseMessage();
+        message.setPaymentGuid(guid);
+        message.setStatus(status);
+        return message;
+    }
+
+    private final class RecordingHandler implements MessageHandler<XPaymentAdapterResponseMessage> {
+
+        @Override
+        public void handle(XPaymentAdapterResponseMessage message) {
+            handled.add(message);
+        }
+
+        @Override
+        public void handleBatch(List<XPaymentAdapterResponseMessage> messages) {
+            handled.addAll(messages);
+        }
+    }
+}
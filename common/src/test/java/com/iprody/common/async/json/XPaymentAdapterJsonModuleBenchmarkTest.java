@@ -0,0 +1,137 @@
+package com.iprody.common.async.json;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.iprody.common.async.XPaymentAdapterResponseMessage;
+import com.iprody.common.async.XPaymentAdapterStatus;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/*
+Бенчмарк потоковых кодеков XPaymentAdapterJsonModule против Jackson по геттерам и сеттерам
+(JavaTimeModule, время строкой ISO-8601) на одних и тех же ответах XPayment Adapter:
+пропускная способность (сообщений в секунду) и выделенная память на сообщение - отдельно для записи
+и чтения. Память считается через com.sun.management.ThreadMXBean для текущего потока. Каждый вариант
+сначала прогревается (JIT), затем замер повторяется несколько раз и берётся лучший результат.
+
+Тест долгий, поэтому в обычной сборке не запускается:
+    mvn -pl common test -Dtest=XPaymentAdapterJsonModuleBenchmarkTest -Dbenchmark=true
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class XPaymentAdapterJsonModuleBenchmarkTest {
+
+    private static final int MESSAGES = 10_000;
+    private static final int WARMUP_ROUNDS = 50;
+    private static final int ROUNDS = 20;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    // Результат, который не даёт JIT выбросить вычисления как неиспользуемые
+    private long sink;
+
+    @Test
+    void module_IsFasterAndAllocatesLessThanBeanIntrospection() throws Exception {
+        final XPaymentAdapterResponseMessage[] messages = IntStream.range(0, MESSAGES)
+            .mapToObj(i -> response())
+            .toArray(XPaymentAdapterResponseMessage[]::new);
+
+        final Result beans = run("Jackson beans", messages, JsonMapper.builder()
+            .addModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES) // как в ObjectMapper из Spring Boot
+            .build());
+        final Result module = run("Streaming codecs", messages, JsonMapper.builder()
+            .addModule(new JavaTimeModule())
+            .addModule(new XPaymentAdapterJsonModule())
+            .build());
+
+        assertThat(module.readBytes()).isLessThan(beans.readBytes());
+    }
+
+    private Result run(String name, XPaymentAdapterResponseMessage[] messages, ObjectMapper mapper)
+        throws Exception {
+        final ObjectWriter writer = mapper.writerFor(XPaymentAdapterResponseMessage.class);
+        final ObjectReader reader = mapper.readerFor(XPaymentAdapterResponseMessage.class);
+        final byte[][] records = new byte[messages.length][];
+        for (int i = 0; i < messages.length; i++) {
+            records[i] = writer.writeValueAsBytes(messages[i]);
+        }
+
+        for (int round = 0; round < WARMUP_ROUNDS; round++) {
+            write(messages, writer);
+            read(records, reader);
+        }
+
+        Measurement write = new Measurement(Double.MAX_VALUE, Long.MAX_VALUE);
+        Measurement read = new Measurement(Double.MAX_VALUE, Long.MAX_VALUE);
+        for (int round = 0; round < ROUNDS; round++) {
+            write = write.best(write(messages, writer));
+            read = read.best(read(records, reader));
+        }
+
+        System.out.printf("%-18s write %9.0f msgs/s %5d B/msg, read %9.0f msgs/s %5d B/msg%n",
+            name, 1e9 / write.nanos(), write.bytes(), 1e9 / read.nanos(), read.bytes());
+        return new Result(write.bytes(), read.bytes());
+    }
+
+    private Measurement write(XPaymentAdapterResponseMessage[] messages, ObjectWriter writer) throws Exception {
+        final long allocated = THREADS.getCurrentThreadAllocatedBytes();
+        final long started = System.nanoTime();
+        for (final XPaymentAdapterResponseMessage message : messages) {
+            sink += writer.writeValueAsBytes(message).length;
+        }
+        return measurement(started, allocated, messages.length);
+    }
+
+    private Measurement read(byte[][] records, ObjectReader reader) throws Exception {
+        final long allocated = THREADS.getCurrentThreadAllocatedBytes();
+        final long started = System.nanoTime();
+        for (final byte[] record : records) {
+            final XPaymentAdapterResponseMessage message = reader.readValue(record);
+            sink += message.getOccurredAt().getNano();
+        }
+        return measurement(started, allocated, records.length);
+    }
+
+    private static Measurement measurement(long started, long allocated, int messages) {
+        final long nanos = System.nanoTime() - started;
+        return new Measurement((double) nanos / messages,
+            (THREADS.getCurrentThreadAllocatedBytes() - allocated) / messages);
+    }
+
+    private static XPaymentAdapterResponseMessage response() {
+        final XPaymentAdapterResponseMessage message = new XPaymentAdapterResponseMessage();
+        message.setPaymentGuid(UUID.randomUUID());
+        message.setTransactionRefId(UUID.randomUUID());
+        message.setAmount(new BigDecimal("125.50"));
+        message.setCurrency("EUR");
+        message.setStatus(XPaymentAdapterStatus.SUCCEEDED);
+        message.setOccurredAt(OffsetDateTime.of(2025, 3, 1, 12, 30, 15, 123_456_789, ZoneOffset.ofHours(3)));
+        return message;
+    }
+
+    private record Measurement(double nanos, long bytes) {
+
+        Measurement best(Measurement other) {
+            return new Measurement(Math.min(nanos, other.nanos), Math.min(bytes, other.bytes));
+        }
+    }
+
+    private record Result(long writeBytes, long readBytes) {
+    }
+}
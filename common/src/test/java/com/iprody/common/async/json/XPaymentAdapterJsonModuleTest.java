@@ -0,0 +1,164 @@
+package com.iprody.common.async.json;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.exc.InvalidFormatException;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.iprody.common.async.XPaymentAdapterRequestMessage;
+import com.iprody.common.async.XPaymentAdapterResponseMessage;
+import com.iprody.common.async.XPaymentAdapterStatus;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class XPaymentAdapterJsonModuleTest {
+
+    private final ObjectMapper mapper = JsonMapper.builder()
+        .addModule(new JavaTimeModule())
+        .addModule(new XPaymentAdapterJsonModule())
+        .build();
+
+    // Jackson без модуля - так сообщения записывались до появления кодеков
+    private final ObjectMapper beanMapper = JsonMapper.builder()
+        .addModule(new JavaTimeModule())
+        .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+        .build();
+
+    @Test
+    void response_RoundTripsAllFields() throws Exception {
+        // given
+        XPaymentAdapterResponseMessage message = response(OffsetDateTime.of(
+            2025, 3, 1, 12, 30, 15, 123_456_789, ZoneOffset.ofHours(3)));
+
+        // when
+        String json = mapper.writeValueAsString(message);
+        XPaymentAdapterResponseMessage result = mapper.readValue(json, XPaymentAdapterResponseMessage.class);
+
+        // then
+        assertThat(json).contains("\"occurredAt\":\"2025-03-01T12:30:15.123456789+03:00\"");
+        assertThat(result.getPaymentGuid()).isEqualTo(message.getPaymentGuid());
+        assertThat(result.getTransactionRefId()).isEqualTo(message.getTransactionRefId());
+        assertThat(result.getAmount()).isEqualTo(message.getAmount());
+        assertThat(result.getCurrency()).isEqualTo(message.getCurrency());
+        assertThat(result.getStatus()).isEqualTo(message.getStatus());
+        assertThat(result.getOccurredAt()).isEqualTo(message.getOccurredAt());
+    }
+
+    @Test
+    void request_WrittenByModule_IsReadableByPlainJackson() throws Exception {
+        // given
+        XPaymentAdapterRequestMessage message = new XPaymentAdapterRequestMessage();
+        message.setPaymentGuid(UUID.randomUUID());
+        message.setAmount(new BigDecimal("10.00"));
+        message.setCurrency("USD");
+        message.setOccurredAt(OffsetDateTime.of(2025, 1, 2, 3, 4, 5, 0, ZoneOffset.UTC));
+
+        // when
+        XPaymentAdapterRequestMessage result = beanMapper.readValue(mapper.writeValueAsString(message),
+            XPaymentAdapterRequestMessage.class);
+
+        // then
+        assertThat(result.getPaymentGuid()).isEqualTo(message.getPaymentGuid());
+        assertThat(result.getAmount()).isEqualTo(message.getAmount());
+        assertThat(result.getOccurredAt()).isEqualTo(message.getOccurredAt());
+    }
+
+    @Test
+    void response_WrittenByPlainJackson_IsReadByModule() throws Exception {
+        // given: прежний JSON - с полем messageId и временем в форме OffsetDateTime.toString()
+        XPaymentAdapterResponseMessage message = response(OffsetDateTime.of(
+            2025, 3, 1, 12, 30, 0, 0, ZoneOffset.ofHours(-5)));
+        String json = beanMapper.writeValueAsString(message);
+
+        // when
+        XPaymentAdapterResponseMessage result = mapper.readValue(json, XPaymentAdapterResponseMessage.class);
+
+        // then
+        assertThat(json).contains("messageId").contains("2025-03-01T12:30:00-05:00");
+        assertThat(result.getPaymentGuid()).isEqualTo(message.getPaymentGuid());
+        assertThat(result.getOccurredAt()).isEqualTo(message.getOccurredAt());
+    }
+
+    @Test
+    void response_WithNumericTimestampAndNulls_IsRead() throws Exception {
+        // given
+        String json = """
+            {"paymentGuid":"3f2504e0-4f89-11d3-9a0c-0305e82c3301","amount":null,"status":"CANCELED",
+             "occurredAt":1740821415.123456789,"extra":{"nested":[1,2]}}
+            """;
+
+        // when
+        XPaymentAdapterResponseMessage result = mapper.readValue(json, XPaymentAdapterResponseMessage.class);
+
+        // then
+        assertThat(result.getAmount()).isNull();
+        assertThat(result.getStatus()).isEqualTo(XPaymentAdapterStatus.CANCELED);
+        assertThat(result.getOccurredAt()).isEqualTo(OffsetDateTime.of(
+            2025, 3, 1, 9, 30, 15, 123_456_789, ZoneOffset.UTC));
+    }
+
+    @Test
+    void response_WithUnknownStatus_FailsWithInvalidFormatException() {
+        // given
+        String json = """
+            {"paymentGuid":"3f2504e0-4f89-11d3-9a0c-0305e82c3301","status":"REFUNDED"}
+            """;
+
+        // when + then
+        assertThatThrownBy(() -> mapper.readValue(json, XPaymentAdapterResponseMessage.class))
+            .isInstanceOf(InvalidFormatException.class)
+            .satisfies(e -> {
+                InvalidFormatException invalid = (InvalidFormatException) e;
+                assertThat(invalid.getValue()).isEqualTo("REFUNDED");
+                assertThat(invalid.getTargetType()).isEqualTo(XPaymentAdapterStatus.class);
+            });
+    }
+
+    @Test
+    void request_WithMalformedValues_FailsWithInvalidFormatException() {
+        // when + then
+        assertThatThrownBy(() -> mapper.readValue("{\"paymentGuid\":\"not-a-uuid\"}",
+            XPaymentAdapterRequestMessage.class))
+            .isInstanceOf(InvalidFormatException.class);
+        assertThatThrownBy(() -> mapper.readValue("{\"amount\":\"12,5\"}", XPaymentAdapterRequestMessage.class))
+            .isInstanceOf(InvalidFormatException.class);
+        assertThatThrownBy(() -> mapper.readValue("{\"occurredAt\":\"yesterday\"}",
+            XPaymentAdapterRequestMessage.class))
+            .isInstanceOf(InvalidFormatException.class);
+    }
+
+    @Test
+    void isoOffsetDateTime_FormatsFixedFormAndParsesAnyIsoForm() {
+        // given
+        char[] buffer = new char[IsoOffsetDateTime.MAX_LENGTH];
+        OffsetDateTime utc = OffsetDateTime.of(2025, 12, 31, 23, 59, 59, 5, ZoneOffset.UTC);
+
+        // when
+        int length = IsoOffsetDateTime.format(utc, buffer);
+
+        // then
+        assertThat(new String(buffer, 0, length)).isEqualTo("2025-12-31T23:59:59.000000005Z");
+        assertThat(IsoOffsetDateTime.parse("2025-12-31T23:59:59.000000005Z")).isEqualTo(utc);
+        assertThat(IsoOffsetDateTime.parse("2025-12-31T23:59Z"))
+            .isEqualTo(OffsetDateTime.of(2025, 12, 31, 23, 59, 0, 0, ZoneOffset.UTC));
+        assertThat(IsoOffsetDateTime.parse("2025-12-31T20:59:59.000000005-03:00")).isAtSameInstantAs(utc);
+    }
+
+    private static XPaymentAdapterResponseMessage response(OffsetDateTime occurredAt) {
+        XPaymentAdapterResponseMessage message = new XPaymentAdapterResponseMessage();
+        message.setPaymentGuid(UUID.randomUUID());
+        message.setTransactionRefId(UUID.randomUUID());
+        message.setAmount(new BigDecimal("125.50"));
+        message.setCurrency("EUR");
+        message.setStatus(XPaymentAdapterStatus.SUCCEEDED);
+        message.setOccurredAt(occurredAt);
+        return message;
+    }
+}
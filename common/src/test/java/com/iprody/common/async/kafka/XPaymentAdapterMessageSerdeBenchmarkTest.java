@@ -0,0 +1,98 @@
+package com.iprody.common.async.kafka;
+
+import com.iprody.common.async.XPaymentAdapterResponseMessage;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.apache.kafka.common.serialization.Serializer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/*
+Бенчмарк двоичного формата XPaymentAdapterBinaryFormat против прежнего JsonSerializer/JsonDeserializer
+на одних и тех же ответах XPayment Adapter: размер записи в байтах и время сериализации и
+десериализации одной записи. Каждый вариант сначала прогревается (JIT), затем замер повторяется
+несколько раз и берётся лучший результат.
+
+Тест долгий, поэтому в обычной сборке не запускается:
+    mvn -pl common test -Dtest=XPaymentAdapterMessageSerdeBenchmarkTest -Dbenchmark=true
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class XPaymentAdapterMessageSerdeBenchmarkTest {
+
+    private static final String TOPIC = "xpayment-adapter.responses";
+    private static final int MESSAGES = 10_000;
+    private static final int WARMUP_ROUNDS = 50;
+    private static final int ROUNDS = 20;
+
+    // Результат, который не даёт JIT выбросить вычисления как неиспользуемые
+    private long sink;
+
+    @Test
+    void binaryFormat_IsSmallerAndFasterThanJson() {
+        final XPaymentAdapterResponseMessage[] messages = IntStream.range(0, MESSAGES)
+            .mapToObj(i -> XPaymentAdapterMessageSerdeTest.response())
+            .toArray(XPaymentAdapterResponseMessage[]::new);
+
+        try (JsonSerializer<XPaymentAdapterResponseMessage> jsonSerializer = new JsonSerializer<>();
+             JsonDeserializer<XPaymentAdapterResponseMessage> jsonDeserializer =
+                 new JsonDeserializer<>(XPaymentAdapterResponseMessage.class, false)) {
+            final Result json = run("JSON", messages, jsonSerializer, jsonDeserializer);
+            final Result binary = run("Binary v1", messages, new XPaymentAdapterResponseMessageSerializer(),
+                new XPaymentAdapterResponseMessageDeserializer());
+
+            assertThat(binary.bytesPerRecord()).isLessThan(json.bytesPerRecord());
+        }
+    }
+
+    private Result run(String name, XPaymentAdapterResponseMessage[] messages,
+        Serializer<XPaymentAdapterResponseMessage> serializer, Deserializer<XPaymentAdapterResponseMessage> deserializer) {
+        final byte[][] records = new byte[messages.length][];
+        long bytes = 0;
+        for (int i = 0; i < messages.length; i++) {
+            records[i] = serializer.serialize(TOPIC, messages[i]);
+            bytes += records[i].length;
+        }
+
+        for (int round = 0; round < WARMUP_ROUNDS; round++) {
+            serialize(messages, serializer);
+            deserialize(records, deserializer);
+        }
+
+        double serializeNs = Double.MAX_VALUE;
+        double deserializeNs = Double.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            serializeNs = Math.min(serializeNs, serialize(messages, serializer));
+            deserializeNs = Math.min(deserializeNs, deserialize(records, deserializer));
+        }
+
+        final Result result = new Result((double) bytes / messages.length, serializeNs, deserializeNs);
+        System.out.printf("%-10s %6.1f bytes/record, serialize %7.1f ns/record, deserialize %7.1f ns/record%n",
+            name, result.bytesPerRecord(), result.serializeNs(), result.deserializeNs());
+        return result;
+    }
+
+    private double serialize(XPaymentAdapterResponseMessage[] messages,
+        Serializer<XPaymentAdapterResponseMessage> serializer) {
+        final long started = System.nanoTime();
+        for (final XPaymentAdapterResponseMessage message : messages) {
+            sink += serializer.serialize(TOPIC, message).length;
+        }
+        return (double) (System.nanoTime() - started) / messages.length;
+    }
+
+    private double deserialize(byte[][] records, Deserializer<XPaymentAdapterResponseMessage> deserializer) {
+        final long started = System.nanoTime();
+        for (final byte[] record : records) {
+            sink += deserializer.deserialize(TOPIC, record).getPaymentGuid().getLeastSignificantBits();
+        }
+        return (double) (System.nanoTime() - started) / records.length;
+    }
+
+    private record Result(double bytesPerRecord, double serializeNs, double deserializeNs) {
+    }
+}
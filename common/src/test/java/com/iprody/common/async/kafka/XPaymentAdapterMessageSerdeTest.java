@@ -0,0 +1,136 @@
+package com.iprody.common.async.kafka;
+
+import com.iprody.common.async.XPaymentAdapterRequestMessage;
+import com.iprody.common.async.XPaymentAdapterResponseMessage;
+import com.iprody.common.async.XPaymentAdapterStatus;
+import org.apache.kafka.common.errors.SerializationException;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class XPaymentAdapterMessageSerdeTest {
+
+    private static final String TOPIC = "xpayment-adapter.responses";
+
+    private final XPaymentAdapterResponseMessageSerializer serializer = new XPaymentAdapterResponseMessageSerializer();
+    private final XPaymentAdapterResponseMessageDeserializer deserializer =
+        new XPaymentAdapterResponseMessageDeserializer();
+
+    @Test
+    void response_RoundTripsAllFieldsInFixedSize() {
+        // given
+        XPaymentAdapterResponseMessage message = response();
+
+        // when
+        byte[] data = serializer.serialize(TOPIC, message);
+        XPaymentAdapterResponseMessage result = deserializer.deserialize(TOPIC, data);
+
+        // then
+        assertThat(data).hasSize(XPaymentAdapterBinaryFormat.RESPONSE_SIZE);
+        assertThat(result.getPaymentGuid()).isEqualTo(message.getPaymentGuid());
+        assertThat(result.getTransactionRefId()).isEqualTo(message.getTransactionRefId());
+        assertThat(result.getAmount()).isEqualTo(message.getAmount());
+        assertThat(result.getCurrency()).isEqualTo(message.getCurrency());
+        assertThat(result.getStatus()).isEqualTo(message.getStatus());
+        // момент времени сохраняется с точностью до микросекунд, смещение - UTC
+        assertThat(result.getOccurredAt()).isEqualTo(
+            OffsetDateTime.of(2025, 3, 1, 9, 30, 15, 123_456_000, ZoneOffset.UTC));
+    }
+
+    @Test
+    void request_WithMissingFields_ReadsThemAsNull() {
+        // given
+        XPaymentAdapterRequestMessage message = new XPaymentAdapterRequestMessage();
+        message.setPaymentGuid(UUID.randomUUID());
+
+        // when
+        byte[] data = new XPaymentAdapterRequestMessageSerializer().serialize(TOPIC, message);
+        XPaymentAdapterRequestMessage result = new XPaymentAdapterRequestMessageDeserializer().deserialize(TOPIC, data);
+
+        // then
+        assertThat(data).hasSize(XPaymentAdapterBinaryFormat.REQUEST_SIZE);
+        assertThat(result.getPaymentGuid()).isEqualTo(message.getPaymentGuid());
+        assertThat(result.getAmount()).isNull();
+        assertThat(result.getCurrency()).isNull();
+        assertThat(result.getOccurredAt()).isNull();
+    }
+
+    @Test
+    void deserialize_WithJsonRecord_ReadsPreviousFormat() {
+        // given: запись, отправленная прежним JsonSerializer
+        XPaymentAdapterResponseMessage message = response();
+        byte[] data;
+        try (JsonSerializer<XPaymentAdapterResponseMessage> json = new JsonSerializer<>()) {
+            data = json.serialize(TOPIC, message);
+        }
+
+        // when
+        XPaymentAdapterResponseMessage result = deserializer.deserialize(TOPIC, data);
+
+        // then
+        assertThat(result.getPaymentGuid()).isEqualTo(message.getPaymentGuid());
+        assertThat(result.getAmount()).isEqualByComparingTo(message.getAmount());
+        assertThat(result.getStatus()).isEqualTo(message.getStatus());
+    }
+
+    @Test
+    void deserialize_WithUnknownVersion_Throws() {
+        // given
+        byte[] data = serializer.serialize(TOPIC, response());
+        data[0] = 2;
+
+        // when / then
+        assertThatThrownBy(() -> deserializer.deserialize(TOPIC, data))
+            .isInstanceOf(SerializationException.class)
+            .hasMessageContaining("version 2");
+    }
+
+    @Test
+    void serialize_WithInvalidCurrency_Throws() {
+        // given
+        XPaymentAdapterResponseMessage message = response();
+        message.setCurrency("RUBL");
+
+        // when / then
+        assertThatThrownBy(() -> serializer.serialize(TOPIC, message))
+            .isInstanceOf(SerializationException.class);
+    }
+
+    @Test
+    void messageSerializer_ChoosesFormatByMessageType() {
+        // given
+        XPaymentAdapterMessageSerializer messages = new XPaymentAdapterMessageSerializer();
+        XPaymentAdapterRequestMessage request = new XPaymentAdapterRequestMessage();
+        request.setPaymentGuid(UUID.randomUUID());
+
+        // when
+        byte[] requestData = messages.serialize(TOPIC, request);
+        byte[] responseData = messages.serialize(TOPIC, response());
+
+        // then
+        assertThat(requestData).hasSize(XPaymentAdapterBinaryFormat.REQUEST_SIZE);
+        assertThat(new XPaymentAdapterRequestMessageDeserializer().deserialize(TOPIC, requestData).getPaymentGuid())
+            .isEqualTo(request.getPaymentGuid());
+        assertThat(responseData).hasSize(XPaymentAdapterBinaryFormat.RESPONSE_SIZE);
+        assertThatThrownBy(() -> messages.serialize(TOPIC, "payment"))
+            .isInstanceOf(SerializationException.class);
+    }
+
+    static XPaymentAdapterResponseMessage response() {
+        XPaymentAdapterResponseMessage message = new XPaymentAdapterResponseMessage();
+        message.setPaymentGuid(UUID.randomUUID());
+        message.setTransactionRefId(UUID.randomUUID());
+        message.setAmount(new BigDecimal("125.50"));
+        message.setCurrency("EUR");
+        message.setStatus(XPaymentAdapterStatus.SUCCEEDED);
+        message.setOccurredAt(OffsetDateTime.of(2025, 3, 1, 12, 30, 15, 123_456_789, ZoneOffset.ofHours(3)));
+        return message;
+    }
+}
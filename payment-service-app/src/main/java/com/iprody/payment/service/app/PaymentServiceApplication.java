@@ -1,9 +1,16 @@
 package com.iprody.payment.service.app;
 
+import com.iprody.common.async.json.XPaymentAdapterJsonConfig;
+import com.iprody.common.async.kafka.KafkaProducerConfig;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.Import;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+// Метрики отправки в Kafka и JSON-кодеки сообщений XPayment Adapter из модуля common
+@Import({KafkaProducerConfig.class, XPaymentAdapterJsonConfig.class})
+@EnableScheduling // Периодическая публикация событий из outbox (KafkaXPaymentAdapterOutboxRelay)
 public class PaymentServiceApplication {
 
     public static void main(String[] args) {
@@ -0,0 +1,56 @@
+package com.iprody.payment.service.app.async;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.iprody.common.async.AsyncSender;
+import com.iprody.common.async.XPaymentAdapterRequestMessage;
+import com.iprody.payment.service.app.persistence.PaymentOutboxRepository;
+import com.iprody.payment.service.app.persistence.entity.PaymentOutboxEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.OffsetDateTime;
+
+/*
+Отправка запроса в XPayment Adapter через transactional outbox: сообщение не уходит в Kafka сразу,
+а записывается в payment_outbox в транзакции вызывающего кода. Если транзакция откатится,
+откатится и сообщение; если зафиксируется - его опубликует KafkaXPaymentAdapterOutboxRelay.
+Вызов вне транзакции - ошибка (Propagation.MANDATORY): без неё outbox не даёт гарантий.
+ */
+@Service
+class OutboxXPaymentAdapterRequestSender implements AsyncSender<XPaymentAdapterRequestMessage> {
+
+    private static final Logger log = LoggerFactory.getLogger(OutboxXPaymentAdapterRequestSender.class);
+
+    private final PaymentOutboxRepository outboxRepository;
+    private final ObjectMapper objectMapper;
+
+    @Autowired
+    OutboxXPaymentAdapterRequestSender(PaymentOutboxRepository outboxRepository, ObjectMapper objectMapper) {
+        this.outboxRepository = outboxRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void send(XPaymentAdapterRequestMessage msg) {
+        final PaymentOutboxEvent event = new PaymentOutboxEvent();
+        event.setPaymentGuid(msg.getPaymentGuid());
+        event.setPayload(toJson(msg));
+        event.setCreatedAt(OffsetDateTime.now());
+        outboxRepository.save(event);
+        log.debug("XPayment Adapter request for payment {} is stored in outbox", msg.getPaymentGuid());
+    }
+
+    private String toJson(XPaymentAdapterRequestMessage msg) {
+        try {
+            return objectMapper.writeValueAsString(msg);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize XPayment Adapter request " + msg.getPaymentGuid(), e);
+        }
+    }
+}
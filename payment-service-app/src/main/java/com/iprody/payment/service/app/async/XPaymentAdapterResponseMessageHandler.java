@@ -5,10 +5,18 @@ import com.iprody.common.async.XPaymentAdapterResponseMessage;
 import com.iprody.payment.service.app.exception.EntityNotFoundException;
 import com.iprody.payment.service.app.persistence.PaymentRepository;
 import com.iprody.payment.service.app.persistence.entity.Payment;
+import com.iprody.payment.service.app.service.PaymentCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.OffsetDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 
 /*
 Данный класс играет роль обработчика входящих сообщений о завершении обработки
@@ -22,24 +30,64 @@ public class XPaymentAdapterResponseMessageHandler implements MessageHandler<XPa
     private static final Logger log = LoggerFactory.getLogger(XPaymentAdapterResponseMessageHandler.class);
 
     private final PaymentRepository paymentRepository;
+    private final PaymentCache paymentCache;
+    private final TransactionTemplate transactionTemplate;
 
     @Autowired
-    public XPaymentAdapterResponseMessageHandler(PaymentRepository paymentRepository) {
+    public XPaymentAdapterResponseMessageHandler(PaymentRepository paymentRepository, PaymentCache paymentCache,
+        TransactionTemplate transactionTemplate) {
         this.paymentRepository = paymentRepository;
+        this.paymentCache = paymentCache;
+        this.transactionTemplate = transactionTemplate;
     }
 
     @Override
     public void handle(XPaymentAdapterResponseMessage response) {
         log.info("Got response {}", response);
 
-        final Payment updated = paymentRepository.findById(response.getPaymentGuid())
-            .orElseThrow(() -> new EntityNotFoundException("Платеж не найден", "updateTransactionRefId",
-            response.getPaymentGuid()));
-
-        updated.setTransactionRefId(response.getTransactionRefId());
-        paymentRepository.save(updated);
+        // Одним UPDATE, без чтения платежа и без перезаписи остальных его полей
+        final int updated = paymentRepository.updateTransactionRefId(response.getPaymentGuid(),
+            response.getTransactionRefId(), OffsetDateTime.now());
+        if (updated == 0) {
+            throw new EntityNotFoundException("Платеж не найден", "updateTransactionRefId",
+                response.getPaymentGuid());
+        }
+        paymentCache.evict(response.getPaymentGuid());
 
         log.debug("Payment's (guid = {}) field transactionRefId was successfully updated to {}",
             response.getPaymentGuid(), response.getTransactionRefId());
     }
+
+    /*
+    Пачка ответов обрабатывается за одну транзакцию:
+    - из нескольких ответов по одному платежу учитывается последний полученный;
+    - все платежи пачки читаются одним findAllById;
+    - изменённые сущности Hibernate сбрасывает при commit JDBC-пакетами (hibernate.jdbc.batch_size).
+    Ответ на неизвестный платеж не останавливает обработку остальных, а только логируется.
+    Кэш сбрасывается после commit, чтобы в него не попало значение из ещё не завершённой транзакции.
+     */
+    @Override
+    public void handleBatch(List<XPaymentAdapterResponseMessage> responses) {
+        final Map<UUID, XPaymentAdapterResponseMessage> latest = new LinkedHashMap<>();
+        for (final XPaymentAdapterResponseMessage response : responses) {
+            latest.put(response.getPaymentGuid(), response);
+        }
+
+        final int updated = transactionTemplate.execute(status -> {
+            final List<Payment> payments = paymentRepository.findAllById(latest.keySet());
+            final OffsetDateTime now = OffsetDateTime.now();
+            for (final Payment payment : payments) {
+                payment.setTransactionRefId(latest.get(payment.getGuid()).getTransactionRefId());
+                payment.setUpdatedAt(now);
+            }
+            return payments.size();
+        });
+        latest.keySet().forEach(paymentCache::evict);
+
+        if (updated < latest.size()) {
+            log.warn("{} of {} payment(s) from XPayment Adapter responses were not found",
+                latest.size() - updated, latest.size());
+        }
+        log.debug("Batch of {} response(s) updated transactionRefId of {} payment(s)", responses.size(), updated);
+    }
 }
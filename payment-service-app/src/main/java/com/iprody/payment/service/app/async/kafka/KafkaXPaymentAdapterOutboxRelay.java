@@ -0,0 +1,132 @@
+package com.iprody.payment.service.app.async.kafka;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.iprody.common.async.XPaymentAdapterRequestMessage;
+import com.iprody.common.async.kafka.KafkaSendMetrics;
+import com.iprody.payment.service.app.persistence.PaymentOutboxRepository;
+import com.iprody.payment.service.app.persistence.entity.PaymentOutboxEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/*
+Relay transactional outbox: публикует в Kafka события из payment_outbox, которые записал
+OutboxXPaymentAdapterRequestSender, и удаляет опубликованные.
+
+- Каждые app.outbox.poll-interval-ms в одной транзакции: забирает до app.outbox.batch-size событий
+  (FOR UPDATE SKIP LOCKED - несколько экземпляров сервиса не публикуют одно событие дважды одновременно),
+  отправляет их все и только потом ждёт подтверждений. Producer копит записи linger.ms и сжимает пачку,
+  поэтому пачка событий уходит в брокер несколькими запросами, а не одним на событие
+  (настройки producer - общий профиль kafka-producer.yaml из модуля common).
+- Подтверждённые брокером события удаляются одним DELETE. Неотправленные остаются в таблице
+  и публикуются следующим проходом, поэтому при падении сервиса событие не теряется, но может быть
+  опубликовано повторно - получатель должен быть идемпотентным по paymentGuid.
+- Пока пачки полные, следующая забирается сразу, не дожидаясь интервала.
+ */
+@Component
+class KafkaXPaymentAdapterOutboxRelay {
+
+    private static final Logger log = LoggerFactory.getLogger(KafkaXPaymentAdapterOutboxRelay.class);
+
+    // Template класс в Spring Boot позволяет отправлять различные запросы
+    private final KafkaTemplate<String, XPaymentAdapterRequestMessage> template;
+    private final KafkaSendMetrics sendMetrics;
+    private final PaymentOutboxRepository outboxRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final String topic;
+    private final int batchSize;
+    private final long sendTimeoutMs;
+
+    @Autowired
+    KafkaXPaymentAdapterOutboxRelay(
+        KafkaTemplate<String, XPaymentAdapterRequestMessage> template,
+        KafkaSendMetrics sendMetrics,
+        PaymentOutboxRepository outboxRepository,
+        TransactionTemplate transactionTemplate,
+        ObjectMapper objectMapper,
+        @Value("${app.kafka.topics.xpayment-adapter.request:xpayment-adapter.requests}") String topic,
+        @Value("${app.outbox.batch-size:500}") int batchSize,
+        @Value("${app.outbox.send-timeout-ms:10000}") long sendTimeoutMs
+    ) {
+        this.template = template;
+        this.sendMetrics = sendMetrics;
+        this.outboxRepository = outboxRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+        this.topic = topic;
+        this.batchSize = batchSize;
+        this.sendTimeoutMs = sendTimeoutMs;
+    }
+
+    @Scheduled(fixedDelayString = "${app.outbox.poll-interval-ms:200}")
+    public void relay() {
+        Integer published;
+        do {
+            published = transactionTemplate.execute(status -> publishBatch());
+        } while (published != null && published == batchSize);
+    }
+
+    // Публикует одну пачку событий и возвращает, сколько из них подтвердил брокер
+    int publishBatch() {
+        final List<PaymentOutboxEvent> events = outboxRepository.lockBatch(batchSize);
+        if (events.isEmpty()) {
+            return 0;
+        }
+
+        final List<CompletableFuture<SendResult<String, XPaymentAdapterRequestMessage>>> results =
+            new ArrayList<>(events.size());
+        for (final PaymentOutboxEvent event : events) {
+            results.add(send(event));
+        }
+
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(sendTimeoutMs);
+        final List<Long> published = new ArrayList<>(events.size());
+        for (int i = 0; i < events.size(); i++) {
+            final PaymentOutboxEvent event = events.get(i);
+            try {
+                results.get(i).get(Math.max(deadline - System.nanoTime(), 0), TimeUnit.NANOSECONDS);
+                published.add(event.getId());
+            } catch (ExecutionException | TimeoutException e) {
+                log.warn("Outbox event {} for payment {} is not published, will retry: {}",
+                    event.getId(), event.getPaymentGuid(), e.toString());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+
+        if (!published.isEmpty()) {
+            outboxRepository.deleteAllByIdIn(published);
+        }
+        log.debug("Published {} of {} outbox events -> topic={}", published.size(), events.size(), topic);
+        return published.size();
+    }
+
+    private CompletableFuture<SendResult<String, XPaymentAdapterRequestMessage>> send(PaymentOutboxEvent event) {
+        try {
+            final XPaymentAdapterRequestMessage msg =
+                objectMapper.readValue(event.getPayload(), XPaymentAdapterRequestMessage.class);
+            final String key = msg.getPaymentGuid().toString(); // фиксируем партиционирование по платежу
+            log.info("Sending XPayment Adapter request: guid={}, amount={}, currency={} -> topic={}",
+                msg.getPaymentGuid(), msg.getAmount(), msg.getCurrency(), topic);
+            return sendMetrics.send(template, topic, key, msg);
+        } catch (JsonProcessingException | RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+}
@@ -1,38 +0,0 @@
-package com.iprody.payment.service.app.async.kafka;
-
-import com.iprody.common.async.AsyncSender;
-import com.iprody.common.async.XPaymentAdapterRequestMessage;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.kafka.core.KafkaTemplate;
-import org.springframework.stereotype.Service;
-
-@Service
-class KafkaXPaymentAdapterRequestSender implements AsyncSender<XPaymentAdapterRequestMessage> {
-
-    private static final Logger log = LoggerFactory.getLogger(KafkaXPaymentAdapterRequestSender.class);
-
-    // Template класс в Spring Boot позволяет отправлять различные запросы
-    private final KafkaTemplate<String, XPaymentAdapterRequestMessage> template;
-
-    private final String topic;
-
-    @Autowired
-    public KafkaXPaymentAdapterRequestSender(
-        KafkaTemplate<String, XPaymentAdapterRequestMessage> template,
-        @Value("${app.kafka.topics.xpayment-adapter.request:xpayment-adapter.requests}") String topic
-    ) {
-        this.template = template;
-        this.topic = topic;
-    }
-
-    @Override
-    public void send(XPaymentAdapterRequestMessage msg) {
-        final String key = msg.getPaymentGuid().toString(); // фиксируем партиционирование по платежу
-        log.info("Sending XPayment Adapter request: guid={}, amount={}, currency={} -> topic={}",
-            msg.getPaymentGuid(), msg.getAmount(), msg.getCurrency(), topic);
-        template.send(topic, key, msg);
-    }
-}
@@ -1,15 +1,22 @@
 package com.iprody.payment.service.app.async.kafka;
 
 import com.iprody.common.async.AsyncListener;
+import com.iprody.common.async.DeduplicatingMessageHandler;
 import com.iprody.common.async.MessageHandler;
 import com.iprody.common.async.XPaymentAdapterResponseMessage;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
 @Component
 class KafkaXPaymentAdapterResultListenerAdapter implements AsyncListener<XPaymentAdapterResponseMessage> {
 
@@ -17,8 +24,19 @@ class KafkaXPaymentAdapterResultListenerAdapter implements AsyncListener<XPaymen
 
     private final MessageHandler<XPaymentAdapterResponseMessage> handler;
 
-    public KafkaXPaymentAdapterResultListenerAdapter(MessageHandler<XPaymentAdapterResponseMessage> handler) {
-        this.handler = handler;
+    /*
+    Обработчик обёрнут в DeduplicatingMessageHandler: ответы, доставленные повторно, отбрасываются
+    до транзакции в БД. По одному платежу приходят ответы с разными статусами, поэтому ключ -
+    paymentGuid и статус.
+     */
+    public KafkaXPaymentAdapterResultListenerAdapter(
+        MessageHandler<XPaymentAdapterResponseMessage> handler,
+        MeterRegistry meterRegistry,
+        @Value("${app.kafka.consumer.deduplication.window-size:50000}") int windowSize,
+        @Value("${app.kafka.consumer.deduplication.horizon-minutes:60}") long horizonMinutes
+    ) {
+        this.handler = new DeduplicatingMessageHandler<>("xpayment-adapter-responses", handler,
+            XPaymentAdapterResponseMessage::getStatus, windowSize, Duration.ofMinutes(horizonMinutes), meterRegistry);
     }
 
     @Override
@@ -26,20 +44,28 @@ class KafkaXPaymentAdapterResultListenerAdapter implements AsyncListener<XPaymen
         handler.handle(message);
     }
 
+    /*
+    Пакетный режим: за один poll приходит до spring.kafka.consumer.max-poll-records записей,
+    они обрабатываются одним вызовом handleBatch (одна транзакция в БД), и offset'ы
+    подтверждаются одним ack на всю пачку. При ошибке пачка целиком уходит в error handler
+    Spring Kafka и будет получена повторно - обработка ответа идемпотентна.
+     */
     @KafkaListener(topics = "${app.kafka.topics.xpayment-adapter.response}",
-        groupId = "${spring.kafka.consumer.group-id}")
-    public void consume(
-        XPaymentAdapterResponseMessage message,
-        ConsumerRecord<String, XPaymentAdapterResponseMessage> record,
-        Acknowledgment ack
-    ) {
+        groupId = "${spring.kafka.consumer.group-id}", batch = "true")
+    public void consume(List<ConsumerRecord<String, XPaymentAdapterResponseMessage>> records, Acknowledgment ack) {
+        final List<XPaymentAdapterResponseMessage> messages = new ArrayList<>(records.size());
+        for (ConsumerRecord<String, XPaymentAdapterResponseMessage> record : records) {
+            log.debug("Received XPayment Adapter response: paymentGuid={}, status={}, partition={}, offset={}",
+                record.value().getPaymentGuid(), record.value().getStatus(), record.partition(), record.offset());
+            messages.add(record.value());
+        }
+
         try {
-            log.info("Received XPayment Adapter response: paymentGuid={}, status={}, partition={}, offset={}",
-                message.getPaymentGuid(), message.getStatus(), record.partition(), record.offset());
-            onMessage(message);
+            log.info("Received {} XPayment Adapter response(s)", messages.size());
+            handler.handleBatch(messages);
             ack.acknowledge();
         } catch (Exception e) {
-            log.error("Error handling XPayment Adapter response for paymentGuid={}", message.getPaymentGuid(), e);
+            log.error("Error handling batch of {} XPayment Adapter response(s)", messages.size(), e);
             throw e; // отдаём в error handler Spring Kafka
         }
     }
@@ -1,20 +1,31 @@
 package com.iprody.payment.service.app.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import com.iprody.payment.service.app.dto.PaymentDto;
 import com.iprody.payment.service.app.dto.PaymentNoteUpdateDto;
+import com.iprody.payment.service.app.dto.PaymentWindowDto;
 import com.iprody.payment.service.app.persistence.PaymentFilter;
 import com.iprody.payment.service.app.service.PaymentService;
 import com.iprody.payment.service.app.service.PaymentServiceImpl;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.List;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.UUID;
 
 /*
@@ -34,10 +45,12 @@ public class PaymentController {
     private static final Logger log = LoggerFactory.getLogger(PaymentController.class);
 
     private final PaymentService paymentService;
+    private final ObjectMapper objectMapper;
 
     @Autowired
-    public PaymentController(PaymentServiceImpl paymentService) {
+    public PaymentController(PaymentServiceImpl paymentService, ObjectMapper objectMapper) {
         this.paymentService = paymentService;
+        this.objectMapper = objectMapper;
     }
 
     /*
@@ -52,13 +65,60 @@ public class PaymentController {
         return dto;
     }
 
-    @GetMapping
+    /*
+    Все платежи отдаются потоком: каждая строка пишется в ответ сразу после чтения из БД,
+    и ответ уходит клиенту порциями (chunked) по мере заполнения буфера сервлета.
+    По умолчанию это JSON-массив, а с "Accept: application/x-ndjson" - NDJSON, по одному платежу на строку.
+     */
+    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
     @PreAuthorize("hasAnyRole('admin', 'reader')")
-    public List<PaymentDto> getPayments() {
+    public void getPayments(HttpServletResponse response) throws IOException {
         log.info("GET all payments");
-        final List<PaymentDto> dtoList = paymentService.getAll();
-        log.debug("Sending response List<PaymentDto> containing {} dto(s)", dtoList.size());
-        return dtoList;
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        try (SequenceWriter writer = streamWriter().writeValuesAsArray(response.getOutputStream())) {
+            writePayments(writer);
+        }
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @PreAuthorize("hasAnyRole('admin', 'reader')")
+    public void getPaymentsAsNdjson(HttpServletResponse response) throws IOException {
+        log.info("GET all payments (NDJSON)");
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        final ObjectWriter ndjsonWriter = streamWriter().withRootValueSeparator("\n");
+        final int count;
+        try (SequenceWriter writer = ndjsonWriter.writeValues(response.getOutputStream())) {
+            count = writePayments(writer);
+        }
+        // разделитель пишется только между значениями, а по NDJSON строка завершается и после последнего;
+        // без платежей тело ответа пустое
+        if (count > 0) {
+            response.getOutputStream().write('\n');
+        }
+    }
+
+    /*
+    Сбрасываем данные клиенту не после каждой строки, а по заполнении буфера сервлета.
+    Закрытие SequenceWriter не закрывает поток ответа - его закрывает сам контейнер.
+     */
+    private ObjectWriter streamWriter() {
+        return objectMapper.writerFor(PaymentDto.class)
+            .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+            .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    }
+
+    private int writePayments(SequenceWriter writer) {
+        final int[] count = {0};
+        paymentService.streamAll(dto -> {
+            try {
+                writer.write(dto);
+                count[0]++;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        log.debug("Streamed {} payment(s)", count[0]);
+        return count[0];
     }
 
     /*
@@ -88,6 +148,28 @@ public class PaymentController {
         return resultPage;
     }
 
+    /*
+    Поиск с keyset-пагинацией для глубокого листания: первая страница запрашивается без cursor,
+    каждая следующая - с cursor = nextCursor из предыдущего ответа. Сортировка возможна по createdAt или amount.
+    size ограничен сверху: он целиком уходит в LIMIT запроса. Выход за границы - ответ 400.
+     */
+    @GetMapping("/search/scroll")
+    @PreAuthorize("hasAnyRole('admin', 'reader')")
+    public PaymentWindowDto scrollPayments(
+        @ModelAttribute PaymentFilter filter,
+        @RequestParam(defaultValue = "25") @Min(1) @Max(PaymentServiceImpl.MAX_SCROLL_SIZE) int size,
+        @RequestParam(defaultValue = "createdAt") String sortBy,
+        @RequestParam(defaultValue = "desc") String direction,
+        @RequestParam(required = false) String cursor
+    ) {
+        log.info("GET (scroll) payment(s) by {}, size {}, sortBy {}, direction {}, cursor {}",
+            filter, size, sortBy, direction, cursor);
+        final PaymentWindowDto window = paymentService.scroll(filter, size, sortBy, direction, cursor);
+        log.debug("Sending response PaymentWindowDto containing {} payment(s), hasNext {}",
+            window.size(), window.hasNext());
+        return window;
+    }
+
     /*
     @ResponseStatus - Позволяет указать HTTP-статус, который вернётся в ответе при успешном выполнении метода.
 
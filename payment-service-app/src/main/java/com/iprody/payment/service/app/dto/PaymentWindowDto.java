@@ -0,0 +1,11 @@
+package com.iprody.payment.service.app.dto;
+
+import java.util.List;
+
+/*
+Одна "страница" keyset-пагинации. В отличие от Page здесь нет totalElements и номера страницы:
+их подсчёт потребовал бы отдельного count(*) и OFFSET. Для перехода к следующей странице
+клиент передаёт nextCursor обратно в параметре cursor; если hasNext = false, nextCursor равен null.
+ */
+public record PaymentWindowDto(List<PaymentDto> content, int size, boolean hasNext, String nextCursor) {
+}
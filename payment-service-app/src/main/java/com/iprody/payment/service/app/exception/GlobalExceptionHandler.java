@@ -1,9 +1,15 @@
 package com.iprody.payment.service.app.exception;
 
+import org.springframework.context.MessageSourceResolvable;
 import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.method.annotation.HandlerMethodValidationException;
+
+import java.util.List;
+import java.util.stream.Collectors;
 
 @RestControllerAdvice
 public class GlobalExceptionHandler {
@@ -19,6 +25,29 @@ public class GlobalExceptionHandler {
         );
     }
 
+    @ExceptionHandler(InvalidCursorException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public ErrorDto handleInvalidCursor(InvalidCursorException ex) {
+        return new ErrorDto(
+                HttpStatus.BAD_REQUEST.value(),
+                ex.getMessage(),
+                "scroll",
+                null
+        );
+    }
+
+    @ExceptionHandler(HandlerMethodValidationException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public ErrorDto handleInvalidParameter(HandlerMethodValidationException ex) {
+        return badRequest(ex.getAllErrors());
+    }
+
+    @ExceptionHandler(MethodArgumentNotValidException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public ErrorDto handleInvalidBody(MethodArgumentNotValidException ex) {
+        return badRequest(ex.getAllErrors());
+    }
+
     @ExceptionHandler(Exception.class)
     @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
     public ErrorDto handleOther(Exception ex) {
@@ -29,4 +58,15 @@ public class GlobalExceptionHandler {
                 null
         );
     }
+
+    private static ErrorDto badRequest(List<? extends MessageSourceResolvable> errors) {
+        return new ErrorDto(
+                HttpStatus.BAD_REQUEST.value(),
+                errors.stream()
+                        .map(MessageSourceResolvable::getDefaultMessage)
+                        .collect(Collectors.joining("; ")),
+                null,
+                null
+        );
+    }
 }
@@ -4,45 +4,112 @@ import com.iprody.payment.service.app.persistence.entity.Payment;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.util.StringUtils;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+/*
+Компиляция PaymentFilter в Specification.
+
+- Границы нормализуются: на каждую колонку - одно условие. Если заданы обе границы суммы,
+  строится один BETWEEN, а не min + max + between, как раньше: дублирующиеся условия на одну колонку
+  Postgres оценивает как независимые и сильно занижает ожидаемое число строк.
+- Пустые условия (пустая строка валюты) отбрасываются.
+- Набор условий зависит только от того, какие поля фильтра заданы, поэтому "форма" запроса
+  компилируется один раз для каждой из 64 комбинаций и берётся из списка SHAPES. Значения фильтра
+  передаются в SQL параметрами (hibernate.criteria.value_handling_mode: bind), поэтому одна и та же
+  комбинация всегда даёт одинаковый текст SQL, и драйвер переиспользует подготовленный запрос и его план.
+ */
 public final class PaymentFilterFactory {
 
     private static final Specification<Payment> EMPTY = (root, query, cb) -> null;
 
+    // Биты маски заданных полей фильтра
+    private static final int STATUS = 1;
+    private static final int CURRENCY = 1 << 1;
+    private static final int MIN_AMOUNT = 1 << 2;
+    private static final int MAX_AMOUNT = 1 << 3;
+    private static final int CREATED_AFTER = 1 << 4;
+    private static final int CREATED_BEFORE = 1 << 5;
+
+    private static final List<List<Function<PaymentFilter, Specification<Payment>>>> SHAPES =
+        IntStream.range(0, 1 << 6).mapToObj(PaymentFilterFactory::compile).toList();
+
     public static Specification<Payment> fromFilter(PaymentFilter filter) {
-        Specification<Payment> spec = EMPTY;
+        final List<Function<PaymentFilter, Specification<Payment>>> shape = SHAPES.get(mask(filter));
+        if (shape.isEmpty()) {
+            return EMPTY;
+        }
+        if (shape.size() == 1) {
+            return shape.get(0).apply(filter);
+        }
 
-        if (StringUtils.hasText(filter.getCurrency())) {
-            spec = spec.and(PaymentSpecifications.hasCurrency(filter.getCurrency()));
+        final List<Specification<Payment>> specs = new ArrayList<>(shape.size());
+        for (Function<PaymentFilter, Specification<Payment>> condition : shape) {
+            specs.add(condition.apply(filter));
         }
+        return Specification.allOf(specs);
+    }
 
+    private static int mask(PaymentFilter filter) {
+        int mask = 0;
+        if (filter.getStatus() != null) {
+            mask |= STATUS;
+        }
+        if (StringUtils.hasText(filter.getCurrency())) {
+            mask |= CURRENCY;
+        }
         if (filter.getMinAmount() != null) {
-            spec = spec.and(PaymentSpecifications.minAmount(filter.getMinAmount()));
+            mask |= MIN_AMOUNT;
         }
-
         if (filter.getMaxAmount() != null) {
-            spec = spec.and(PaymentSpecifications.maxAmount(filter.getMaxAmount()));
+            mask |= MAX_AMOUNT;
         }
-
-        if (filter.getMinAmount() != null && filter.getMaxAmount() != null) {
-            spec = spec.and(PaymentSpecifications.amountBetween(filter.getMinAmount(), filter.getMaxAmount()));
+        if (filter.getCreatedAfter() != null) {
+            mask |= CREATED_AFTER;
         }
-
         if (filter.getCreatedBefore() != null) {
-            spec = spec.and(PaymentSpecifications.createdBefore(filter.getCreatedBefore()));
+            mask |= CREATED_BEFORE;
         }
+        return mask;
+    }
 
-        if (filter.getCreatedAfter() != null) {
-            spec = spec.and(PaymentSpecifications.createdAfter(filter.getCreatedAfter()));
+    /*
+    Порядок условий фиксирован и совпадает с порядком колонок в индексах из changelog v1.2:
+    сначала равенства (status, currency), затем диапазоны.
+     */
+    private static List<Function<PaymentFilter, Specification<Payment>>> compile(int mask) {
+        final List<Function<PaymentFilter, Specification<Payment>>> conditions = new ArrayList<>();
+
+        if ((mask & STATUS) != 0) {
+            conditions.add(filter -> PaymentSpecifications.hasStatus(filter.getStatus()));
         }
 
-        if (filter.getCreatedAfter() != null && filter.getCreatedBefore() != null) {
-            spec = spec.and(PaymentSpecifications.createdBetween(filter.getCreatedAfter(), filter.getCreatedBefore()));
+        if ((mask & CURRENCY) != 0) {
+            conditions.add(filter -> PaymentSpecifications.hasCurrency(filter.getCurrency()));
         }
 
-        if (filter.getStatus() != null) {
-            spec = spec.and(PaymentSpecifications.hasStatus(filter.getStatus()));
+        // Границы суммы включительные, обе сразу - это ровно BETWEEN
+        if ((mask & (MIN_AMOUNT | MAX_AMOUNT)) == (MIN_AMOUNT | MAX_AMOUNT)) {
+            conditions.add(filter -> PaymentSpecifications.amountBetween(filter.getMinAmount(),
+                filter.getMaxAmount()));
+        } else if ((mask & MIN_AMOUNT) != 0) {
+            conditions.add(filter -> PaymentSpecifications.minAmount(filter.getMinAmount()));
+        } else if ((mask & MAX_AMOUNT) != 0) {
+            conditions.add(filter -> PaymentSpecifications.maxAmount(filter.getMaxAmount()));
+        }
+
+        // Границы даты строгие, поэтому не BETWEEN (он включает концы), а "> and <" одной Specification
+        if ((mask & (CREATED_AFTER | CREATED_BEFORE)) == (CREATED_AFTER | CREATED_BEFORE)) {
+            conditions.add(filter -> PaymentSpecifications.createdWithin(filter.getCreatedAfter(),
+                filter.getCreatedBefore()));
+        } else if ((mask & CREATED_AFTER) != 0) {
+            conditions.add(filter -> PaymentSpecifications.createdAfter(filter.getCreatedAfter()));
+        } else if ((mask & CREATED_BEFORE) != 0) {
+            conditions.add(filter -> PaymentSpecifications.createdBefore(filter.getCreatedBefore()));
         }
 
-        return spec;
+        return List.copyOf(conditions);
     }
 }
@@ -0,0 +1,25 @@
+package com.iprody.payment.service.app.persistence;
+
+import com.iprody.payment.service.app.persistence.entity.PaymentOutboxEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface PaymentOutboxRepository extends JpaRepository<PaymentOutboxEvent, Long> {
+
+    /*
+    Самые старые неопубликованные события, заблокированные до конца текущей транзакции.
+    SKIP LOCKED пропускает строки, которые уже забрал другой экземпляр relay, поэтому экземпляры
+    публикуют разные пачки параллельно и не ждут друг друга. Вызывать только внутри транзакции.
+     */
+    @Query(value = "select * from payment_outbox order by id limit :limit for update skip locked", nativeQuery = true)
+    List<PaymentOutboxEvent> lockBatch(int limit);
+
+    // Удаляет опубликованные события одним запросом на всю пачку
+    @Modifying
+    @Query("delete from PaymentOutboxEvent e where e.id in :ids")
+    int deleteAllByIdIn(Collection<Long> ids);
+}
@@ -1,11 +1,51 @@
 package com.iprody.payment.service.app.persistence;
 
 import com.iprody.payment.service.app.persistence.entity.Payment;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.OffsetDateTime;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 public interface PaymentRepository extends JpaRepository<Payment, UUID>, JpaSpecificationExecutor<Payment> {
 
+    // Сколько строк драйвер PostgreSQL забирает из курсора за одно обращение к БД
+    int STREAM_FETCH_SIZE = 500;
+
+    /*
+    Потоковое чтение всей таблицы: строки приходят из серверного курсора порциями по STREAM_FETCH_SIZE,
+    а не загружаются в память разом. Stream нужно читать внутри транзакции и обязательно закрывать.
+    READ_ONLY - Hibernate не хранит снимки сущностей для dirty checking.
+     */
+    @Query("select p from Payment p")
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + STREAM_FETCH_SIZE),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+        @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "false")
+    })
+    Stream<Payment> streamAll();
+
+    /*
+    Точечные UPDATE одним запросом вместо findById + save всей сущности: меняются только нужные колонки,
+    поэтому параллельное изменение других полей того же платежа не затирается.
+    Возвращают количество изменённых строк: 0 - платежа с таким guid нет.
+    clearAutomatically - после UPDATE в обход persistence context загруженные ранее сущности устарели.
+     */
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("update Payment p set p.note = :note, p.updatedAt = :updatedAt where p.guid = :guid")
+    int updateNote(UUID guid, String note, OffsetDateTime updatedAt);
+
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("update Payment p set p.transactionRefId = :transactionRefId, p.updatedAt = :updatedAt "
+        + "where p.guid = :guid")
+    int updateTransactionRefId(UUID guid, UUID transactionRefId, OffsetDateTime updatedAt);
 }
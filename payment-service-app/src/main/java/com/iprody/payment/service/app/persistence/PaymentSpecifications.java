@@ -2,6 +2,7 @@ package com.iprody.payment.service.app.persistence;
 
 import com.iprody.payment.service.app.persistence.entity.Payment;
 import com.iprody.payment.service.app.persistence.entity.PaymentStatus;
+import jakarta.persistence.criteria.Path;
 import org.springframework.data.jpa.domain.Specification;
 
 import java.math.BigDecimal;
@@ -46,9 +47,16 @@ public final class PaymentSpecifications {
         return (root, query, cb) -> cb.greaterThan(root.get("createdAt"), after);
     }
 
-    // диапазон дат создания
-    public static Specification<Payment> createdBetween(OffsetDateTime after, OffsetDateTime before) {
-        return (root, query, cb) -> cb.between(root.get("createdAt"), after, before);
+    /*
+    Создано строго между after и before. SQL тот же, что у пары createdAfter + createdBefore:
+    "created_at > ? and created_at < ?" - одна Specification вместо двух, а индекс по created_at
+    планировщик в обоих случаях использует как один диапазон.
+     */
+    public static Specification<Payment> createdWithin(OffsetDateTime after, OffsetDateTime before) {
+        return (root, query, cb) -> {
+            final Path<OffsetDateTime> createdAt = root.get("createdAt");
+            return cb.and(cb.greaterThan(createdAt, after), cb.lessThan(createdAt, before));
+        };
     }
 
     // статус
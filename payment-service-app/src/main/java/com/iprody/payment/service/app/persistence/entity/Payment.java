@@ -1,6 +1,7 @@
 package com.iprody.payment.service.app.persistence.entity;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.DynamicUpdate;
 import java.math.BigDecimal;
 import java.time.OffsetDateTime;
 import java.util.UUID;
@@ -26,6 +27,12 @@ import java.util.UUID;
 генерирует Hibernate, что может привести к проблемам.
  */
 @Table(name = "payment")
+/*
+@DynamicUpdate - UPDATE при сохранении сущности содержит только изменённые колонки, а не все.
+Отдельные поля (note, transactionRefId) обновляются запросами из PaymentRepository,
+а сохранение всей сущности через save остаётся там, где меняется весь платеж (PaymentServiceImpl.update)
+ */
+@DynamicUpdate
 public class Payment {
 
     /*
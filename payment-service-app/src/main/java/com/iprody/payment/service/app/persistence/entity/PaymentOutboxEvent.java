@@ -0,0 +1,66 @@
+package com.iprody.payment.service.app.persistence.entity;
+
+import jakarta.persistence.*;
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+/*
+Событие о создании платежа, ожидающее публикации в Kafka (transactional outbox).
+Записывается в одной транзакции с платежом, поэтому событие есть тогда и только тогда,
+когда платеж сохранён. payload - XPaymentAdapterRequestMessage в JSON.
+ */
+@Entity
+@Table(name = "payment_outbox")
+public class PaymentOutboxEvent {
+
+    /*
+    @GeneratedValue(IDENTITY) - значение id выдаёт сама БД (автоинкремент) при вставке строки
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "payment_guid", nullable = false)
+    private UUID paymentGuid;
+
+    @Column(nullable = false, columnDefinition = "text")
+    private String payload;
+
+    @Column(name = "created_at", nullable = false)
+    private OffsetDateTime createdAt;
+
+    public PaymentOutboxEvent() {
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public UUID getPaymentGuid() {
+        return paymentGuid;
+    }
+
+    public void setPaymentGuid(UUID paymentGuid) {
+        this.paymentGuid = paymentGuid;
+    }
+
+    public String getPayload() {
+        return payload;
+    }
+
+    public void setPayload(String payload) {
+        this.payload = payload;
+    }
+
+    public OffsetDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(OffsetDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+}
@@ -0,0 +1,56 @@
+package com.iprody.payment.service.app.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.iprody.payment.service.app.dto.PaymentDto;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Function;
+
+/*
+Кэш платежей по guid перед PaymentServiceImpl.get: статус платежа опрашивается многократно,
+и повторное чтение отдаётся из памяти, без запроса в Postgres.
+
+- Размер ограничен app.payment-cache.max-size записей; вытеснение - W-TinyLFU из Caffeine,
+  поэтому разовые чтения не вытесняют из кэша часто опрашиваемые платежи.
+- Все изменения платежа в этом сервисе вызывают evict. Загрузка и evict одного ключа в Caffeine
+  взаимоисключающие, поэтому значение, прочитанное из БД до изменения, не останется в кэше после evict.
+- Изменения, сделанные в обход сервиса (другим экземпляром приложения или напрямую в БД),
+  перестают быть видны не позже чем через app.payment-cache.expire-after-write-seconds.
+- Метрики hit/miss/eviction публикуются в actuator как cache.gets, cache.evictions и т.д. с тегом cache=payments.
+ */
+@Component
+public class PaymentCache {
+
+    private final Cache<UUID, PaymentDto> cache;
+
+    @Autowired
+    public PaymentCache(
+        @Value("${app.payment-cache.max-size:10000}") long maxSize,
+        @Value("${app.payment-cache.expire-after-write-seconds:300}") long expireAfterWriteSeconds,
+        MeterRegistry meterRegistry
+    ) {
+        this.cache = Caffeine.newBuilder()
+            .maximumSize(maxSize)
+            .expireAfterWrite(Duration.ofSeconds(expireAfterWriteSeconds))
+            .recordStats()
+            .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "payments");
+    }
+
+    // Возвращает платеж из кэша или загружает его; отсутствующие платежи не кэшируются
+    public Optional<PaymentDto> get(UUID guid, Function<UUID, Optional<PaymentDto>> loader) {
+        return Optional.ofNullable(cache.get(guid, key -> loader.apply(key).orElse(null)));
+    }
+
+    public void evict(UUID guid) {
+        cache.invalidate(guid);
+    }
+}
@@ -0,0 +1,86 @@
+package com.iprody.payment.service.app.service;
+
+import com.iprody.payment.service.app.exception.InvalidCursorException;
+import com.iprody.payment.service.app.persistence.entity.Payment;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/*
+Курсор keyset-пагинации: поле сортировки, направление и значения ключа (sortBy, guid) последней
+отданной записи. Следующая страница запрашивается условием "после этого ключа" вместо OFFSET,
+поэтому база сразу встаёт на нужное место индекса, и время ответа не зависит от глубины страницы.
+guid добавлен к ключу как уникальный "тай-брейкер": у нескольких платежей могут совпадать
+createdAt или amount.
+
+Для клиента курсор непрозрачен - это Base64url от строки "v1|sortBy|direction|value|guid".
+ */
+public record PaymentCursor(String sortBy, Sort.Direction direction, ScrollPosition position) {
+
+    private static final String VERSION = "v1";
+    private static final String SEPARATOR = "|";
+
+    // Поля, по которым поддерживается keyset-пагинация
+    public static final String CREATED_AT = "createdAt";
+    public static final String AMOUNT = "amount";
+    public static final String GUID = "guid";
+
+    // Курсор первой страницы: ключа ещё нет
+    public static PaymentCursor first(String sortBy, String direction) {
+        if (!CREATED_AT.equals(sortBy) && !AMOUNT.equals(sortBy)) {
+            throw new InvalidCursorException("Keyset pagination supports sorting by createdAt or amount only");
+        }
+        return new PaymentCursor(sortBy, parseDirection(direction), ScrollPosition.keyset());
+    }
+
+    public Sort sort() {
+        return Sort.by(direction, sortBy, GUID);
+    }
+
+    // Курсор, указывающий на позицию сразу после last
+    public String next(Payment last) {
+        final Object value = CREATED_AT.equals(sortBy) ? last.getCreatedAt() : last.getAmount();
+        final String raw = String.join(SEPARATOR, VERSION, sortBy, direction.name(),
+            value instanceof BigDecimal amount ? amount.toPlainString() : value.toString(),
+            last.getGuid().toString());
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static PaymentCursor decode(String token) {
+        final String[] parts;
+        try {
+            parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8)
+                .split("\\" + SEPARATOR);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCursorException("Malformed cursor", e);
+        }
+        if (parts.length != 5 || !VERSION.equals(parts[0])) {
+            throw new InvalidCursorException("Malformed cursor");
+        }
+
+        final PaymentCursor first = first(parts[1], parts[2]);
+        try {
+            final Object value = CREATED_AT.equals(first.sortBy())
+                ? OffsetDateTime.parse(parts[3])
+                : new BigDecimal(parts[3]);
+            // Порядок ключей важен: он должен совпадать с порядком полей сортировки
+            final Map<String, Object> keys = new LinkedHashMap<>();
+            keys.put(first.sortBy(), value);
+            keys.put(GUID, UUID.fromString(parts[4]));
+            return new PaymentCursor(first.sortBy(), first.direction(), ScrollPosition.forward(keys));
+        } catch (RuntimeException e) {
+            throw new InvalidCursorException("Malformed cursor", e);
+        }
+    }
+
+    private static Sort.Direction parseDirection(String direction) {
+        return "desc".equalsIgnoreCase(direction) ? Sort.Direction.DESC : Sort.Direction.ASC;
+    }
+}
@@ -1,17 +1,19 @@
 package com.iprody.payment.service.app.service;
 
 import com.iprody.payment.service.app.dto.PaymentDto;
+import com.iprody.payment.service.app.dto.PaymentWindowDto;
 import com.iprody.payment.service.app.persistence.PaymentFilter;
 import org.springframework.data.domain.Page;
 
-import java.util.List;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 public interface PaymentService {
     PaymentDto get(UUID guid);
-    List<PaymentDto> getAll();
+    void streamAll(Consumer<PaymentDto> consumer);
     Page<PaymentDto> search(PaymentFilter filter, int page, int size,
         String sortBy, String direction);
+    PaymentWindowDto scroll(PaymentFilter filter, int size, String sortBy, String direction, String cursor);
     PaymentDto create(PaymentDto dto);
     PaymentDto update(UUID guid, PaymentDto dto);
     PaymentDto updateNote(UUID guid, String note);
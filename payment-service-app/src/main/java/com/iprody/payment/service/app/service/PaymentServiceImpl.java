@@ -3,6 +3,7 @@ package com.iprody.payment.service.app.service;
 import com.iprody.common.async.AsyncSender;
 import com.iprody.common.async.XPaymentAdapterRequestMessage;
 import com.iprody.payment.service.app.dto.PaymentDto;
+import com.iprody.payment.service.app.dto.PaymentWindowDto;
 import com.iprody.payment.service.app.exception.EntityNotFoundException;
 import com.iprody.payment.service.app.mapper.PaymentMapper;
 import com.iprody.payment.service.app.mapper.XPaymentAdapterMapper;
@@ -10,40 +11,68 @@ import com.iprody.payment.service.app.persistence.PaymentFilter;
 import com.iprody.payment.service.app.persistence.PaymentFilterFactory;
 import com.iprody.payment.service.app.persistence.PaymentRepository;
 import com.iprody.payment.service.app.persistence.entity.Payment;
+import jakarta.persistence.EntityManager;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.OffsetDateTime;
 import java.util.List;
 import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
 public class PaymentServiceImpl implements PaymentService {
 
+    // Наибольший размер страницы keyset-пагинации
+    public static final int MAX_SCROLL_SIZE = 500;
+
     private final PaymentRepository paymentRepository;
     private final PaymentMapper paymentMapper;
     private final XPaymentAdapterMapper xPaymentAdapterMapper;
     private final AsyncSender<XPaymentAdapterRequestMessage> sender;
+    private final EntityManager entityManager;
+    private final PaymentCache paymentCache;
 
     @Autowired
     public PaymentServiceImpl(PaymentRepository paymentRepository, PaymentMapper paymentMapper,
-        XPaymentAdapterMapper xPaymentAdapterMapper, AsyncSender<XPaymentAdapterRequestMessage> sender) {
+        XPaymentAdapterMapper xPaymentAdapterMapper, AsyncSender<XPaymentAdapterRequestMessage> sender,
+        EntityManager entityManager, PaymentCache paymentCache) {
         this.paymentRepository = paymentRepository;
         this.paymentMapper = paymentMapper;
         this.xPaymentAdapterMapper = xPaymentAdapterMapper;
         this.sender = sender;
+        this.entityManager = entityManager;
+        this.paymentCache = paymentCache;
     }
 
+    // Read-through: повторные чтения платежа отдаются из PaymentCache
     public PaymentDto get(UUID guid) {
-        return paymentRepository.findById(guid)
-                .map(paymentMapper::toDto)
+        return paymentCache.get(guid, key -> paymentRepository.findById(key).map(paymentMapper::toDto))
                 .orElseThrow(() -> new EntityNotFoundException("Платеж не найден", "get", guid));
     }
 
-    public List<PaymentDto> getAll() {
-        return paymentRepository.findAll().stream().map(paymentMapper::toDto).toList();
+    /*
+    Отдаёт платежи по одному, не собирая их в список: память не растёт вместе с таблицей.
+    Транзакция только на чтение держит курсор открытым, пока consumer пишет ответ клиенту.
+    Прочитанные сущности всё равно остаются в persistence context, поэтому он периодически очищается.
+     */
+    @Transactional(readOnly = true)
+    public void streamAll(Consumer<PaymentDto> consumer) {
+        try (Stream<Payment> payments = paymentRepository.streamAll()) {
+            int read = 0;
+            for (final Payment payment : (Iterable<Payment>) payments::iterator) {
+                consumer.accept(paymentMapper.toDto(payment));
+                if (++read % PaymentRepository.STREAM_FETCH_SIZE == 0) {
+                    entityManager.clear();
+                }
+            }
+        }
     }
 
     public Page<PaymentDto> search(PaymentFilter filter, int page, int size,
@@ -60,6 +89,37 @@ public class PaymentServiceImpl implements PaymentService {
         ).map(paymentMapper::toDto);
     }
 
+    /*
+    Keyset-пагинация: вместо OFFSET запрос продолжает выборку строго после ключа (sortBy, guid)
+    из курсора, и count(*) не выполняется. Window запрашивает size + 1 строк, чтобы узнать, есть ли
+    следующая страница. Если курсор передан, сортировка берётся из него, а sortBy и direction игнорируются.
+     */
+    public PaymentWindowDto scroll(PaymentFilter filter, int size, String sortBy, String direction, String cursor) {
+        if (size < 1 || size > MAX_SCROLL_SIZE) {
+            throw new IllegalArgumentException("Scroll size must be between 1 and " + MAX_SCROLL_SIZE);
+        }
+        final PaymentCursor position = cursor == null || cursor.isBlank()
+            ? PaymentCursor.first(sortBy, direction)
+            : PaymentCursor.decode(cursor);
+
+        final Window<Payment> window = paymentRepository.findBy(
+            PaymentFilterFactory.fromFilter(filter),
+            query -> query.sortBy(position.sort()).limit(size).scroll(position.position()));
+
+        final List<Payment> content = window.getContent();
+        final String nextCursor = window.hasNext() && !content.isEmpty()
+            ? position.next(content.get(content.size() - 1))
+            : null;
+        return new PaymentWindowDto(content.stream().map(paymentMapper::toDto).toList(),
+            content.size(), window.hasNext(), nextCursor);
+    }
+
+    /*
+    Платеж и сообщение для XPayment Adapter сохраняются в одной транзакции: sender записывает сообщение
+    в outbox, а в Kafka его публикует отдельный relay. Ответ не ждёт Kafka, и сообщение не теряется,
+    если сервис упадёт сразу после сохранения платежа.
+     */
+    @Transactional
     public PaymentDto create(PaymentDto dto) {
         final Payment entity = paymentMapper.toEntity(dto);
         final Payment saved = paymentRepository.save(entity);
@@ -81,16 +141,22 @@ public class PaymentServiceImpl implements PaymentService {
         final Payment updated = paymentMapper.toEntity(dto);
         updated.setGuid(guid);
         final Payment saved = paymentRepository.save(updated);
+        paymentCache.evict(guid);
         return paymentMapper.toDto(saved);
     }
 
+    /*
+    Заметка меняется одним UPDATE без предварительного чтения платежа. Обновлённый платеж
+    для ответа читается уже через кэш - он же будет отдаваться последующим get.
+     */
     public PaymentDto updateNote(UUID guid, String note) {
-        final Payment updated = paymentRepository.findById(guid)
-            .orElseThrow(() -> new EntityNotFoundException("Платеж не найден", "updateNote", guid));
+        if (paymentRepository.updateNote(guid, note, OffsetDateTime.now()) == 0) {
+            throw new EntityNotFoundException("Платеж не найден", "updateNote", guid);
+        }
+        paymentCache.evict(guid);
 
-        updated.setNote(note);
-        final Payment saved = paymentRepository.save(updated);
-        return paymentMapper.toDto(saved);
+        return paymentCache.get(guid, key -> paymentRepository.findById(key).map(paymentMapper::toDto))
+            .orElseThrow(() -> new EntityNotFoundException("Платеж не найден", "updateNote", guid));
     }
 
     public void delete(UUID guid) {
@@ -98,5 +164,6 @@ public class PaymentServiceImpl implements PaymentService {
             throw new EntityNotFoundException("Платеж не найден", "delete", guid);
         }
         paymentRepository.deleteById(guid);
+        paymentCache.evict(guid);
     }
 }
@@ -0,0 +1,110 @@
+package com.iprody.payment.service.app.async;
+
+import com.iprody.common.async.XPaymentAdapterResponseMessage;
+import com.iprody.payment.service.app.persistence.PaymentRepository;
+import com.iprody.payment.service.app.persistence.entity.Payment;
+import com.iprody.payment.service.app.service.PaymentCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class XPaymentAdapterResponseMessageHandlerTest {
+
+    @Mock
+    private PaymentRepository paymentRepository;
+
+    @Mock
+    private PaymentCache paymentCache;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private XPaymentAdapterResponseMessageHandler handler;
+
+    @BeforeEach
+    void setUp() {
+        handler = new XPaymentAdapterResponseMessageHandler(paymentRepository, paymentCache,
+            new TransactionTemplate(transactionManager));
+    }
+
+    @Test
+    void handleBatch_WithSeveralResponsesForOnePayment_AppliesLatestWithOneQuery() {
+        // given
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        UUID latestTransaction = UUID.randomUUID();
+
+        Payment firstPayment = payment(first);
+        Payment secondPayment = payment(second);
+        when(paymentRepository.findAllById(any())).thenReturn(List.of(firstPayment, secondPayment));
+
+        List<XPaymentAdapterResponseMessage> responses = List.of(
+            response(first, UUID.randomUUID()),
+            response(second, UUID.randomUUID()),
+            response(first, latestTransaction));
+
+        // when
+        handler.handleBatch(responses);
+
+        // then: один запрос на всю пачку, по одному guid на платеж
+        ArgumentCaptor<Iterable<UUID>> ids = ArgumentCaptor.forClass(Iterable.class);
+        verify(paymentRepository, times(1)).findAllById(ids.capture());
+        assertThat(ids.getValue()).containsExactly(first, second);
+
+        assertThat(firstPayment.getTransactionRefId()).isEqualTo(latestTransaction);
+        assertThat(firstPayment.getUpdatedAt()).isNotNull();
+        assertThat(secondPayment.getTransactionRefId()).isEqualTo(responses.get(1).getTransactionRefId());
+
+        verify(paymentRepository, never()).save(any());
+        verify(transactionManager).commit(any());
+        verify(paymentCache).evict(first);
+        verify(paymentCache).evict(second);
+    }
+
+    @Test
+    void handleBatch_WithUnknownPayment_UpdatesTheRest() {
+        // given
+        UUID known = UUID.randomUUID();
+        UUID unknown = UUID.randomUUID();
+        Payment knownPayment = payment(known);
+        when(paymentRepository.findAllById(any())).thenReturn(List.of(knownPayment));
+
+        XPaymentAdapterResponseMessage knownResponse = response(known, UUID.randomUUID());
+
+        // when
+        handler.handleBatch(List.of(response(unknown, UUID.randomUUID()), knownResponse));
+
+        // then
+        assertThat(knownPayment.getTransactionRefId()).isEqualTo(knownResponse.getTransactionRefId());
+        verify(transactionManager).commit(any());
+    }
+
+    private static Payment payment(UUID guid) {
+        Payment payment = new Payment();
+        payment.setGuid(guid);
+        return payment;
+    }
+
+    private static XPaymentAdapterResponseMessage response(UUID paymentGuid, UUID transactionRefId) {
+        XPaymentAdapterResponseMessage response = new XPaymentAdapterResponseMessage();
+        response.setPaymentGuid(paymentGuid);
+        response.setTransactionRefId(transactionRefId);
+        return response;
+    }
+}
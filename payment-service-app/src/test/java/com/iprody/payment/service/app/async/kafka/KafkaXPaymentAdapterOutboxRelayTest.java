@@ -0,0 +1,103 @@
+package com.iprody.payment.service.app.async.kafka;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.iprody.common.async.XPaymentAdapterRequestMessage;
+import com.iprody.common.async.kafka.KafkaSendMetrics;
+import com.iprody.payment.service.app.persistence.PaymentOutboxRepository;
+import com.iprody.payment.service.app.persistence.entity.PaymentOutboxEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class KafkaXPaymentAdapterOutboxRelayTest {
+
+    private static final String TOPIC = "xpayment-adapter.requests";
+
+    @Mock
+    private KafkaTemplate<String, XPaymentAdapterRequestMessage> template;
+
+    @Mock
+    private PaymentOutboxRepository outboxRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    // Настроен так же, как ObjectMapper из Spring Boot
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    private KafkaXPaymentAdapterOutboxRelay relay;
+
+    @BeforeEach
+    void setUp() {
+        relay = new KafkaXPaymentAdapterOutboxRelay(template, new KafkaSendMetrics(new SimpleMeterRegistry()),
+            outboxRepository, new TransactionTemplate(transactionManager), objectMapper, TOPIC, 500, 1000);
+    }
+
+    @Test
+    void publishBatch_DeletesOnlyEventsAcknowledgedByBroker() throws Exception {
+        // given
+        PaymentOutboxEvent published = event(1L, UUID.randomUUID());
+        PaymentOutboxEvent failed = event(2L, UUID.randomUUID());
+        when(outboxRepository.lockBatch(500)).thenReturn(List.of(published, failed));
+        when(template.send(eq(TOPIC), eq(published.getPaymentGuid().toString()), any()))
+            .thenReturn(CompletableFuture.completedFuture(new SendResult<>(null, null)));
+        when(template.send(eq(TOPIC), eq(failed.getPaymentGuid().toString()), any()))
+            .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("broker is unavailable")));
+
+        // when
+        int result = relay.publishBatch();
+
+        // then: неотправленное событие остаётся в outbox до следующего прохода
+        assertThat(result).isEqualTo(1);
+        verify(outboxRepository).deleteAllByIdIn(List.of(1L));
+    }
+
+    @Test
+    void relay_WhenOutboxIsEmpty_SendsNothing() {
+        // given
+        when(outboxRepository.lockBatch(anyInt())).thenReturn(List.of());
+
+        // when
+        relay.relay();
+
+        // then
+        verify(template, never()).send(any(), any(), any());
+        verify(outboxRepository, never()).deleteAllByIdIn(any());
+        verify(transactionManager).commit(any());
+    }
+
+    private PaymentOutboxEvent event(long id, UUID paymentGuid) throws Exception {
+        XPaymentAdapterRequestMessage msg = new XPaymentAdapterRequestMessage();
+        msg.setPaymentGuid(paymentGuid);
+        msg.setAmount(new BigDecimal("10.00"));
+        msg.setCurrency("USD");
+
+        PaymentOutboxEvent event = new PaymentOutboxEvent();
+        event.setId(id);
+        event.setPaymentGuid(paymentGuid);
+        event.setPayload(objectMapper.writeValueAsString(msg));
+        return event;
+    }
+}
@@ -17,6 +17,7 @@ import org.springframework.test.web.servlet.MockMvc;
 
 import java.math.BigDecimal;
 import java.time.OffsetDateTime;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -60,6 +61,25 @@ class PaymentControllerIntegrationTest extends AbstractIntegrationTest {
                 .andExpect(jsonPath("$.[?(@.guid=='00000000-0000-0000-0000-000000000003')]").exists());
     }
 
+    @Test
+    void getPayments_shouldStreamNdjsonLinePerPayment() throws Exception {
+        // given + when
+        final String body = mockMvc.perform(get("/api/payments")
+                        .with(TestJwtFactory.jwtWithRole("test-user", "reader"))
+                        .accept(MediaType.APPLICATION_NDJSON))
+                // then
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString();
+
+        final List<String> lines = body.lines().toList();
+        assertThat(lines).hasSize((int) paymentRepository.count());
+        assertThat(lines).anyMatch(line -> line.contains("\"guid\":\"00000000-0000-0000-0000-000000000001\""));
+        for (final String line : lines) {
+            assertThat(objectMapper.readValue(line, PaymentDto.class).getGuid()).isNotNull();
+        }
+    }
+
     @Test
     void create_shouldCreatePaymentAndVerifyInDatabase() throws Exception {
         // given
@@ -161,6 +181,61 @@ class PaymentControllerIntegrationTest extends AbstractIntegrationTest {
                 .andExpect(jsonPath("$.pageable.pageNumber").value(0));
     }
 
+    @Test
+    void scroll_shouldWalkPaymentsWithCursor() throws Exception {
+        // given + when: первая страница
+        final String response = mockMvc.perform(get("/api/payments/search/scroll")
+                        .with(TestJwtFactory.jwtWithRole("test-user", "reader"))
+                        .param("createdBefore", "2025-01-04T00:00:00Z")
+                        .param("size", "2")
+                        .param("sortBy", "createdAt")
+                        .param("direction", "asc")
+                        .contentType(MediaType.APPLICATION_JSON))
+                // then
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(2))
+                .andExpect(jsonPath("$.content[0].guid").value("00000000-0000-0000-0000-000000000001"))
+                .andExpect(jsonPath("$.content[1].guid").value("00000000-0000-0000-0000-000000000002"))
+                .andExpect(jsonPath("$.hasNext").value(true))
+                .andExpect(jsonPath("$.totalElements").doesNotExist())
+                .andReturn().getResponse().getContentAsString();
+        final String cursor = objectMapper.readTree(response).get("nextCursor").asText();
+
+        // when: следующая страница по курсору
+        mockMvc.perform(get("/api/payments/search/scroll")
+                        .with(TestJwtFactory.jwtWithRole("test-user", "reader"))
+                        .param("createdBefore", "2025-01-04T00:00:00Z")
+                        .param("size", "2")
+                        .param("cursor", cursor)
+                        .contentType(MediaType.APPLICATION_JSON))
+                // then
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(1))
+                .andExpect(jsonPath("$.content[0].guid").value("00000000-0000-0000-0000-000000000003"))
+                .andExpect(jsonPath("$.hasNext").value(false))
+                .andExpect(jsonPath("$.nextCursor").doesNotExist());
+    }
+
+    @Test
+    void scroll_shouldRejectSizeOutOfRange() throws Exception {
+        // given + when
+        mockMvc.perform(get("/api/payments/search/scroll")
+                        .with(TestJwtFactory.jwtWithRole("test-user", "reader"))
+                        .param("size", "0")
+                        .contentType(MediaType.APPLICATION_JSON))
+                // then
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errorCode").value(400));
+
+        // given + when
+        mockMvc.perform(get("/api/payments/search/scroll")
+                        .with(TestJwtFactory.jwtWithRole("test-user", "reader"))
+                        .param("size", "100000")
+                        .contentType(MediaType.APPLICATION_JSON))
+                // then
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     void update_shouldUpdateInfoInExistingPayment() throws Exception {
         // given
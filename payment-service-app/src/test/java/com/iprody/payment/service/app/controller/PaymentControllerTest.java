@@ -0,0 +1,96 @@
+package com.iprody.payment.service.app.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.iprody.payment.service.app.dto.PaymentDto;
+import com.iprody.payment.service.app.service.PaymentServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+
+@ExtendWith(MockitoExtension.class)
+class PaymentControllerTest {
+
+    @Mock
+    private PaymentServiceImpl paymentService;
+
+    private PaymentController controller;
+
+    @BeforeEach
+    void setUp() {
+        controller = new PaymentController(paymentService, new ObjectMapper().registerModule(new JavaTimeModule()));
+    }
+
+    @Test
+    void getPaymentsAsNdjson_WithoutPayments_WritesEmptyBody() throws Exception {
+        // given
+        final MockHttpServletResponse response = new MockHttpServletResponse();
+        streamPayments(List.of());
+
+        // when
+        controller.getPaymentsAsNdjson(response);
+
+        // then
+        assertThat(response.getContentType()).isEqualTo(MediaType.APPLICATION_NDJSON_VALUE);
+        assertThat(response.getContentAsString()).isEmpty();
+    }
+
+    @Test
+    void getPaymentsAsNdjson_WithPayments_TerminatesEveryLine() throws Exception {
+        // given
+        final MockHttpServletResponse response = new MockHttpServletResponse();
+        final UUID first = UUID.randomUUID();
+        final UUID second = UUID.randomUUID();
+        streamPayments(List.of(payment(first), payment(second)));
+
+        // when
+        controller.getPaymentsAsNdjson(response);
+
+        // then
+        final String body = response.getContentAsString();
+        assertThat(body).endsWith("}\n");
+        assertThat(body.split("\n", -1)).hasSize(3);
+        assertThat(body.lines().toList()).satisfiesExactly(
+            line -> assertThat(line).contains(first.toString()),
+            line -> assertThat(line).contains(second.toString()));
+    }
+
+    @Test
+    void getPayments_WithoutPayments_WritesEmptyArray() throws Exception {
+        // given
+        final MockHttpServletResponse response = new MockHttpServletResponse();
+        streamPayments(List.of());
+
+        // when
+        controller.getPayments(response);
+
+        // then
+        assertThat(response.getContentAsString()).isEqualTo("[]");
+    }
+
+    @SuppressWarnings("unchecked")
+    private void streamPayments(List<PaymentDto> payments) {
+        doAnswer(invocation -> {
+            payments.forEach(invocation.<Consumer<PaymentDto>>getArgument(0));
+            return null;
+        }).when(paymentService).streamAll(any(Consumer.class));
+    }
+
+    private static PaymentDto payment(UUID guid) {
+        final PaymentDto dto = new PaymentDto();
+        dto.setGuid(guid);
+        return dto;
+    }
+}
@@ -0,0 +1,116 @@
+package com.iprody.payment.service.app.persistence;
+
+import com.iprody.payment.service.app.persistence.entity.Payment;
+import com.iprody.payment.service.app.persistence.entity.PaymentStatus;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Root;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.RETURNS_MOCKS;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/*
+Criteria API замокан: по вызовам CriteriaBuilder видно, какие условия попадут в WHERE.
+На каждую колонку должно приходиться ровно одно обращение root.get(...) и одно условие.
+ */
+@SuppressWarnings("unchecked")
+class PaymentFilterFactoryTest {
+
+    private final Root<Payment> root = mock(Root.class);
+    private final CriteriaQuery<?> query = mock(CriteriaQuery.class);
+    private final CriteriaBuilder cb = mock(CriteriaBuilder.class, RETURNS_MOCKS);
+
+    private final Path<Object> status = mock(Path.class);
+    private final Path<Object> currency = mock(Path.class);
+    private final Path<BigDecimal> amount = mock(Path.class);
+    private final Path<OffsetDateTime> createdAt = mock(Path.class);
+
+    @BeforeEach
+    void setUp() {
+        doReturn(status).when(root).get("status");
+        doReturn(currency).when(root).get("currency");
+        doReturn(amount).when(root).get("amount");
+        doReturn(createdAt).when(root).get("createdAt");
+    }
+
+    @Test
+    void fromFilter_WithBothBounds_BuildsOnePredicatePerColumn() {
+        // given
+        PaymentFilter filter = new PaymentFilter();
+        filter.setStatus(PaymentStatus.APPROVED);
+        filter.setCurrency("USD");
+        filter.setMinAmount(BigDecimal.ONE);
+        filter.setMaxAmount(BigDecimal.TEN);
+        filter.setCreatedAfter(OffsetDateTime.now().minusDays(1));
+        filter.setCreatedBefore(OffsetDateTime.now());
+
+        // when
+        PaymentFilterFactory.fromFilter(filter).toPredicate(root, query, cb);
+
+        // then
+        verify(root).get("status");
+        verify(root).get("currency");
+        verify(root).get("amount");
+        verify(root).get("createdAt");
+
+        verify(cb).equal(status, PaymentStatus.APPROVED);
+        verify(cb).equal(currency, "USD");
+
+        // сумма - один BETWEEN, без отдельных >= и <=
+        verify(cb).between(amount, BigDecimal.ONE, BigDecimal.TEN);
+        verify(cb, never()).ge(any(), any(Number.class));
+        verify(cb, never()).le(any(), any(Number.class));
+
+        // дата - одна пара строгих границ, без BETWEEN поверх неё
+        verify(cb, times(1)).greaterThan(createdAt, filter.getCreatedAfter());
+        verify(cb, times(1)).lessThan(createdAt, filter.getCreatedBefore());
+        verify(cb, never()).between(any(Path.class), any(OffsetDateTime.class), any(OffsetDateTime.class));
+    }
+
+    @Test
+    void fromFilter_WithSingleBounds_BuildsOneComparisonPerColumn() {
+        // given
+        PaymentFilter filter = new PaymentFilter();
+        filter.setMinAmount(BigDecimal.ONE);
+        filter.setCreatedBefore(OffsetDateTime.now());
+
+        // when
+        PaymentFilterFactory.fromFilter(filter).toPredicate(root, query, cb);
+
+        // then
+        verify(cb).ge(amount, BigDecimal.ONE);
+        verify(cb).lessThan(createdAt, filter.getCreatedBefore());
+        verify(cb, never()).between(any(Path.class), any(BigDecimal.class), any(BigDecimal.class));
+        verify(cb, never()).le(any(), any(Number.class));
+        verify(cb, never()).greaterThan(any(Path.class), any(OffsetDateTime.class));
+    }
+
+    @Test
+    void fromFilter_WithBlankCurrency_DropsCondition() {
+        // given
+        PaymentFilter filter = new PaymentFilter();
+        filter.setCurrency("  ");
+
+        // when
+        Specification<Payment> spec = PaymentFilterFactory.fromFilter(filter);
+
+        // then
+        assertThat(spec).isSameAs(PaymentFilterFactory.fromFilter(new PaymentFilter()));
+        assertThat(spec.toPredicate(root, query, cb)).isNull();
+        verify(root, never()).get(anyString());
+    }
+}
@@ -0,0 +1,120 @@
+package com.iprody.payment.service.app.persistence;
+
+import com.iprody.payment.service.app.AbstractIntegrationTest;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/*
+Бенчмарк индексов из db.changelog-1.2-add-payment-indexes.yaml: таблица наполняется большим набором
+платежей, и для каждой формы фильтра PaymentFilter проверяется план запроса (EXPLAIN ANALYZE) -
+используется ожидаемый индекс, а не полный просмотр таблицы - и выводится среднее время запроса.
+
+Тест долгий, поэтому в обычной сборке не запускается:
+    mvn -pl payment-service-app -am test -Dtest=PaymentIndexBenchmarkIntegrationTest -Dbenchmark=true
+        -Dsurefire.failIfNoSpecifiedTests=false
+
+Контейнер Postgres общий для всех интеграционных тестов, поэтому сгенерированные строки
+помечаются note = 'index-benchmark' и удаляются после теста.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class PaymentIndexBenchmarkIntegrationTest extends AbstractIntegrationTest {
+
+    private static final int ROWS = 200_000;
+    private static final int RUNS = 50;
+    private static final String NOTE = "index-benchmark";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeAll
+    void seed() {
+        // Платежи создаются раз в минуту подряд - как в реальности, created_at растёт вместе с физическим порядком строк
+        jdbcTemplate.update("""
+                insert into payment (guid, inquiry_ref_id, amount, currency, status, note, created_at, updated_at)
+                select gen_random_uuid(), gen_random_uuid(), round((random() * 999)::numeric, 2),
+                       (array['USD', 'EUR', 'RUB', 'CZK'])[1 + i % 4],
+                       (array['RECEIVED', 'PENDING', 'DECLINED', 'APPROVED', 'NOT_SENT'])[1 + i % 5],
+                       ?, timestamptz '2024-01-01 00:00:00Z' + i * interval '1 minute',
+                       timestamptz '2024-01-01 00:00:00Z' + i * interval '1 minute'
+                from generate_series(1, ?) as i
+                """, NOTE, ROWS);
+        jdbcTemplate.execute("analyze payment");
+    }
+
+    @AfterAll
+    void cleanUp() {
+        jdbcTemplate.update("delete from payment where note = ?", NOTE);
+        jdbcTemplate.execute("analyze payment");
+    }
+
+    /*
+    Запросы повторяют SQL, который строит Hibernate для поиска по PaymentSpecifications:
+    условия фильтра + сортировка + страница (limit).
+     */
+    static Stream<Arguments> filterShapes() {
+        return Stream.of(
+                Arguments.of("status, newest first",
+                        "select * from payment where status = 'PENDING' order by created_at desc limit 20",
+                        "idx_payment_status_created_at"),
+                Arguments.of("status + created_at range",
+                        "select * from payment where status = 'APPROVED' and created_at between "
+                                + "'2024-02-01' and '2024-02-08' order by created_at desc limit 20",
+                        "idx_payment_status_created_at"),
+                Arguments.of("currency + created_at range",
+                        "select * from payment where currency = 'EUR' and created_at > '2024-03-01' "
+                                + "order by created_at limit 20",
+                        "idx_payment_currency_created_at"),
+                Arguments.of("amount range",
+                        "select * from payment where amount between 10.00 and 11.00 "
+                                + "order by created_at limit 20",
+                        "idx_payment_amount_guid"),
+                Arguments.of("amount keyset scroll",
+                        "select * from payment where amount > 500.00 or (amount = 500.00 "
+                                + "and guid > '00000000-0000-0000-0000-000000000000') order by amount, guid limit 20",
+                        "idx_payment_amount_guid"),
+                Arguments.of("no filter, newest first",
+                        "select * from payment order by created_at desc limit 20",
+                        "idx_payment_created_at_guid"),
+                Arguments.of("created_at keyset scroll",
+                        "select * from payment where created_at > '2024-02-01' or (created_at = '2024-02-01' and "
+                                + "guid > '00000000-0000-0000-0000-000000000000') order by created_at, guid limit 20",
+                        "idx_payment_created_at_guid"),
+                // Узкий диапазон Postgres может читать и по B-tree (created_at, guid), и по BRIN - оба подходят
+                Arguments.of("created_at range only",
+                        "select * from payment where created_at between '2024-02-01' and '2024-02-02'",
+                        "idx_payment_created_at_")
+        );
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("filterShapes")
+    void search_shouldUseIndex(String shape, String sql, String expectedIndex) {
+        // given + when
+        final List<String> plan = jdbcTemplate.queryForList("explain (analyze, buffers) " + sql, String.class);
+
+        final long started = System.nanoTime();
+        for (int i = 0; i < RUNS; i++) {
+            jdbcTemplate.queryForList(sql);
+        }
+        final double averageMs = (System.nanoTime() - started) / 1_000_000.0 / RUNS;
+
+        System.out.printf("%-28s %8.3f ms%n%s%n", shape, averageMs, String.join("\n", plan));
+
+        // then
+        assertThat(plan).anyMatch(line -> line.contains(expectedIndex));
+        assertThat(plan).noneMatch(line -> line.contains("Seq Scan on payment"));
+    }
+}
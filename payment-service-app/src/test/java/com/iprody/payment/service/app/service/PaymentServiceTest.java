@@ -3,7 +3,9 @@ package com.iprody.payment.service.app.service;
 import com.iprody.common.async.AsyncSender;
 import com.iprody.common.async.XPaymentAdapterRequestMessage;
 import com.iprody.payment.service.app.dto.PaymentDto;
+import com.iprody.payment.service.app.dto.PaymentWindowDto;
 import com.iprody.payment.service.app.exception.EntityNotFoundException;
+import com.iprody.payment.service.app.exception.InvalidCursorException;
 import com.iprody.payment.service.app.mapper.PaymentMapper;
 import com.iprody.payment.service.app.mapper.XPaymentAdapterMapper;
 import com.iprody.payment.service.app.persistence.PaymentFilter;
@@ -11,6 +13,8 @@ import com.iprody.payment.service.app.persistence.PaymentFilterFactory;
 import com.iprody.payment.service.app.persistence.PaymentRepository;
 import com.iprody.payment.service.app.persistence.entity.Payment;
 import com.iprody.payment.service.app.persistence.entity.PaymentStatus;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -20,27 +24,42 @@ import org.junit.jupiter.params.provider.MethodSource;
 import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.mockito.junit.jupiter.MockitoSettings;
 import org.mockito.quality.Strictness;
+import org.springframework.data.domain.KeysetScrollPosition;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.ScrollPosition;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.data.jpa.domain.Specification;
 
 import java.math.BigDecimal;
 import java.time.OffsetDateTime;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -64,6 +83,13 @@ class PaymentServiceTest {
     @Mock
     private AsyncSender<XPaymentAdapterRequestMessage> sender;
 
+    @Mock
+    private EntityManager entityManager;
+
+    // Настоящий кэш, а не заглушка: тесты проверяют, когда чтение уходит в репозиторий
+    @Spy
+    private PaymentCache paymentCache = new PaymentCache(100, 60, new SimpleMeterRegistry());
+
     // Аннотация @InjectMocks позволяет внедрять созданные заглушки в тестируемый сервис
     @InjectMocks
     private PaymentServiceImpl paymentService;
@@ -128,20 +154,71 @@ class PaymentServiceTest {
     }
 
     @Test
-    void shouldGetAllPayments() {
+    void get_WhenCalledTwice_ReadsRepositoryOnce() {
+        // given
+        when(paymentRepository.findById(guid)).thenReturn(Optional.of(payment));
+        when(paymentMapper.toDto(payment)).thenReturn(paymentDto);
+
+        // when
+        paymentService.get(guid);
+        PaymentDto result = paymentService.get(guid);
+
+        // then
+        assertEquals(paymentDto, result);
+        verify(paymentRepository, times(1)).findById(guid);
+    }
+
+    @Test
+    void get_AfterUpdateNote_ReadsRepositoryAgain() {
+        // given
+        when(paymentRepository.findById(guid)).thenReturn(Optional.of(payment));
+        when(paymentRepository.updateNote(eq(guid), eq("Test note 2"), any(OffsetDateTime.class))).thenReturn(1);
+        when(paymentMapper.toDto(payment)).thenReturn(paymentDto);
+        paymentService.get(guid);
+
+        // when
+        paymentService.updateNote(guid, "Test note 2");
+        paymentService.get(guid);
+
+        // then: кэш сброшен, updateNote перечитал платеж, а следующий get взял его из кэша
+        verify(paymentRepository, times(2)).findById(guid);
+        verify(paymentCache).evict(guid);
+    }
+
+    @Test
+    void get_AfterDelete_ThrowsException() {
+        // given
+        when(paymentRepository.findById(guid)).thenReturn(Optional.of(payment), Optional.empty());
+        when(paymentMapper.toDto(payment)).thenReturn(paymentDto);
+        when(paymentRepository.existsById(guid)).thenReturn(true);
+        paymentService.get(guid);
+
+        // when
+        paymentService.delete(guid);
+
+        // then
+        Assertions.assertThatThrownBy(() -> paymentService.get(guid))
+                .isInstanceOf(EntityNotFoundException.class);
+    }
+
+    @Test
+    void streamAll_PassesEveryPaymentToConsumerAndClosesStream() {
         // given
         Payment payment2 = new Payment();
         PaymentDto paymentDto2 = new PaymentDto();
+        AtomicBoolean closed = new AtomicBoolean();
 
-        when(paymentRepository.findAll()).thenReturn(List.of(payment, payment2));
+        when(paymentRepository.streamAll()).thenReturn(Stream.of(payment, payment2).onClose(() -> closed.set(true)));
         when(paymentMapper.toDto(payment)).thenReturn(paymentDto);
         when(paymentMapper.toDto(payment2)).thenReturn(paymentDto2);
 
         // when
-        List<PaymentDto> result = paymentService.getAll();
+        List<PaymentDto> result = new ArrayList<>();
+        paymentService.streamAll(result::add);
 
         // then
-        Assertions.assertThat(result).hasSize(2).contains(paymentDto, paymentDto2);
+        assertEquals(List.of(paymentDto, paymentDto2), result);
+        assertTrue(closed.get());
     }
 
     @Test
@@ -211,6 +288,70 @@ class PaymentServiceTest {
         assertEquals(Sort.Direction.DESC, capturedPageRequest.getSort().getOrderFor(sortBy).getDirection());
     }
 
+    @Test
+    void scroll_WithoutCursorWhenMoreRowsExist_ReturnsNextCursorAfterLastPayment() {
+        // given
+        Window<Payment> window = Window.from(List.of(payment), ScrollPosition::offset, true);
+        when(paymentRepository.findBy(any(Specification.class), any())).thenReturn(window);
+        when(paymentMapper.toDto(payment)).thenReturn(paymentDto);
+
+        // when
+        PaymentWindowDto result = paymentService.scroll(new PaymentFilter(), 1, "createdAt", "desc", null);
+
+        // then
+        assertEquals(List.of(paymentDto), result.content());
+        assertTrue(result.hasNext());
+
+        PaymentCursor next = PaymentCursor.decode(result.nextCursor());
+        assertEquals("createdAt", next.sortBy());
+        assertEquals(Sort.Direction.DESC, next.direction());
+        assertEquals(Map.of("createdAt", payment.getCreatedAt(), "guid", guid),
+                ((KeysetScrollPosition) next.position()).getKeys());
+    }
+
+    @Test
+    void scroll_WithSizeOutOfRange_ThrowsAndDoesNotQuery() {
+        // when + then
+        assertThrows(IllegalArgumentException.class,
+                () -> paymentService.scroll(new PaymentFilter(), 0, "createdAt", "desc", null));
+        assertThrows(IllegalArgumentException.class,
+                () -> paymentService.scroll(new PaymentFilter(), PaymentServiceImpl.MAX_SCROLL_SIZE + 1,
+                        "createdAt", "desc", null));
+        verifyNoInteractions(paymentRepository);
+    }
+
+    @Test
+    void scroll_WithCursorOnLastPage_UsesCursorSortingAndReturnsNoNextCursor() {
+        // given
+        String cursor = PaymentCursor.first("amount", "asc").next(payment);
+        when(paymentRepository.findBy(any(Specification.class), any()))
+                .thenReturn(Window.from(List.of(payment), ScrollPosition::offset, false));
+        when(paymentMapper.toDto(payment)).thenReturn(paymentDto);
+
+        // when
+        PaymentWindowDto result = paymentService.scroll(new PaymentFilter(), 10, "createdAt", "desc", cursor);
+
+        // then
+        assertEquals(1, result.size());
+        assertFalse(result.hasNext());
+        assertNull(result.nextCursor());
+
+        PaymentCursor decoded = PaymentCursor.decode(cursor);
+        assertEquals(Sort.by(Sort.Direction.ASC, "amount", "guid"), decoded.sort());
+        assertEquals(Map.of("amount", payment.getAmount(), "guid", guid),
+                ((KeysetScrollPosition) decoded.position()).getKeys());
+    }
+
+    @Test
+    void scroll_WithMalformedCursorOrUnsupportedSorting_ThrowsException() {
+        // when + then
+        Assertions.assertThatThrownBy(() -> paymentService.scroll(new PaymentFilter(), 10, "createdAt", "desc",
+                        "not-a-cursor"))
+                .isInstanceOf(InvalidCursorException.class);
+        Assertions.assertThatThrownBy(() -> paymentService.scroll(new PaymentFilter(), 10, "currency", "desc", null))
+                .isInstanceOf(InvalidCursorException.class);
+    }
+
     @Test
     void create_WhenRepositorySuccessfullySavedPaymentFromPaymentDto_ReturnsExactSamePaymentDto() {
         // given
@@ -266,25 +407,26 @@ class PaymentServiceTest {
     }
 
     @Test
-    void updateNote_WhenOptionalPaymentIsNotEmpty_ReturnsPaymentDtoWithNewNote() {
+    void updateNote_WhenPaymentExists_UpdatesNoteWithSingleStatement() {
         // given
+        payment.setNote("Test note 2");
+        paymentDto.setNote("Test note 2");
+        when(paymentRepository.updateNote(eq(guid), eq("Test note 2"), any(OffsetDateTime.class))).thenReturn(1);
         when(paymentRepository.findById(guid)).thenReturn(Optional.of(payment));
-        when(paymentRepository.save(payment)).thenReturn(payment);
         when(paymentMapper.toDto(payment)).thenReturn(paymentDto);
 
         // when
-        paymentService.updateNote(guid, "Test note 2");
+        PaymentDto result = paymentService.updateNote(guid, "Test note 2");
 
         // then
-        ArgumentCaptor<Payment> paymentCaptor = ArgumentCaptor.forClass(Payment.class);
-        verify(paymentRepository).save(paymentCaptor.capture());
-        assertEquals("Test note 2", paymentCaptor.getValue().getNote());
+        assertEquals("Test note 2", result.getNote());
+        verify(paymentRepository, never()).save(any());
     }
 
     @Test
-    void updateNote_WhenOptionalPaymentIsEmpty_ThrowsException() {
+    void updateNote_WhenNoRowUpdated_ThrowsException() {
         // given
-        when(paymentRepository.findById(guid)).thenReturn(Optional.empty());
+        when(paymentRepository.updateNote(eq(guid), eq("Test note 2"), any(OffsetDateTime.class))).thenReturn(0);
 
         // when + then
         Assertions.assertThatThrownBy(() -> paymentService.updateNote(guid, "Test note 2"))
@@ -0,0 +1,84 @@
+package com.iprody;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/*
+Фрагмент файла [position, end), который отправляется в сокет без копирования через heap.
+
+FileChannel.transferTo() для SocketChannel в Linux превращается в системный вызов sendfile:
+данные идут из page cache прямо в сокет, минуя byte[] в JVM, поэтому не тратится CPU
+на копирование и не создаётся мусор для GC.
+Если канал назначения не сокет и не файл (например, обёртка над OutputStream), transferTo
+внутри всё равно копировал бы данные через временный буфер - в этом случае фрагмент
+отображается в память (MappedByteBuffer) и пишется из неё напрямую.
+ */
+final class FileRegion implements ResponsePart {
+
+    private final FileChannel file;
+    private final long end;
+    private long position;
+    private MappedByteBuffer mapped;
+
+    private FileRegion(FileChannel file, long position, long end) {
+        this.file = file;
+        this.position = position;
+        this.end = end;
+    }
+
+    static FileRegion open(Path path) throws IOException {
+        FileChannel file = FileChannel.open(path, StandardOpenOption.READ);
+        return new FileRegion(file, 0, file.size());
+    }
+
+    // Фрагмент файла из count байт начиная с position - для ответов на Range-запросы
+    static FileRegion open(Path path, long position, long count) throws IOException {
+        FileChannel file = FileChannel.open(path, StandardOpenOption.READ);
+        return new FileRegion(file, position, position + count);
+    }
+
+    long remaining() {
+        return end - position;
+    }
+
+    @Override
+    public long length() {
+        return remaining();
+    }
+
+    @Override
+    public boolean writeTo(WritableByteChannel channel) throws IOException {
+        if (channel instanceof SocketChannel || channel instanceof FileChannel) {
+            // Для неблокирующего сокета transferTo отправляет столько, сколько поместилось в буфер сокета
+            position += file.transferTo(position, end - position, channel);
+        } else {
+            if (mapped == null) {
+                mapped = file.map(FileChannel.MapMode.READ_ONLY, position,
+                        Math.min(end - position, Integer.MAX_VALUE));
+            }
+            position += channel.write(mapped);
+            if (!mapped.hasRemaining()) {
+                mapped = null;
+            }
+        }
+        return position >= end;
+    }
+
+    // Блокирующая отправка фрагмента целиком
+    void writeFully(WritableByteChannel channel) throws IOException {
+        boolean done;
+        do {
+            done = writeTo(channel);
+        } while (!done);
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+}
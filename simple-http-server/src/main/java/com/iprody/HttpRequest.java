@@ -0,0 +1,123 @@
+package com.iprody;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/*
+Разобранный HTTP-запрос: строка запроса (метод, путь, версия протокола) и заголовки.
+Создаётся HttpRequestParser'ом. Хранятся только заголовки из KNOWN_HEADERS - остальные серверу не нужны;
+имена заголовков регистронезависимы (RFC 9110) и задаются здесь в нижнем регистре.
+ */
+final class HttpRequest {
+
+    static final String[] KNOWN_HEADERS = {
+            "host", "connection", "accept-encoding", "range", "if-range", "if-none-match", "if-modified-since",
+            "user-agent", "content-length", "transfer-encoding"
+    };
+    private static final Map<String, Integer> HEADER_INDEX = new HashMap<>();
+
+    static {
+        for (int i = 0; i < KNOWN_HEADERS.length; i++) {
+            HEADER_INDEX.put(KNOWN_HEADERS[i], i);
+        }
+    }
+
+    private final String method;
+    private final String path;
+    private final String version;
+    // Значения заголовков по индексу в KNOWN_HEADERS, null - заголовок не передан
+    private final String[] headers;
+
+    HttpRequest(String method, String path, String version, String[] headers) {
+        this.method = method;
+        this.path = path;
+        this.version = version;
+        this.headers = headers;
+    }
+
+    String method() {
+        return method;
+    }
+
+    String path() {
+        return path;
+    }
+
+    String version() {
+        return version;
+    }
+
+    // name - имя заголовка в нижнем регистре
+    String header(String name) {
+        Integer index = HEADER_INDEX.get(name);
+        return index == null ? null : headers[index];
+    }
+
+    // Имя файла без ведущего "/" и без query-параметров
+    String fileName() {
+        int query = path.indexOf('?');
+        return query < 0 ? path.substring(1) : path.substring(1, query);
+    }
+
+    /*
+    Согласование кодирования: клиент принимает encoding, если он (или "*") перечислен
+    в Accept-Encoding с ненулевым весом, например "gzip, deflate, br" или "gzip;q=0.8".
+     */
+    boolean acceptsEncoding(String encoding) {
+        String acceptEncoding = header("accept-encoding");
+        if (acceptEncoding == null) {
+            return false;
+        }
+
+        boolean wildcard = false;
+        for (String item : acceptEncoding.split(",")) {
+            String[] parts = item.trim().split(";");
+            String coding = parts[0].trim();
+            boolean allowed = parts.length < 2 || !isZeroWeight(parts[1].trim());
+            if (coding.equalsIgnoreCase(encoding)) {
+                return allowed;
+            }
+            if (coding.equals("*")) {
+                wildcard = allowed;
+            }
+        }
+        return wildcard;
+    }
+
+    private static boolean isZeroWeight(String parameter) {
+        if (!parameter.startsWith("q=")) {
+            return false;
+        }
+        try {
+            return Double.parseDouble(parameter.substring(2)) == 0;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    /*
+    Запрос с телом (Content-Length больше нуля, некорректный или Transfer-Encoding). Статическому серверу
+    тело не нужно, и он его не читает, поэтому на такой запрос отвечает 400 и закрывает соединение:
+    иначе байты тела были бы разобраны как следующий запрос (request smuggling).
+     */
+    boolean hasBody() {
+        String contentLength = header("content-length");
+        return header("transfer-encoding") != null || contentLength != null && !contentLength.equals("0");
+    }
+
+    /*
+    В HTTP/1.1 соединение постоянное по умолчанию, пока клиент не прислал "Connection: close".
+    В HTTP/1.0 - наоборот, только если клиент явно попросил "Connection: keep-alive".
+    После запроса с телом соединение всегда закрывается.
+     */
+    boolean keepAlive() {
+        if (hasBody()) {
+            return false;
+        }
+        String connection = header("connection");
+        if ("HTTP/1.1".equals(version)) {
+            return connection == null || !connection.equalsIgnoreCase("close");
+        }
+        return connection != null && connection.equalsIgnoreCase("keep-alive");
+    }
+}
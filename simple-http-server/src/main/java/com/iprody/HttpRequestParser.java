@@ -0,0 +1,192 @@
+package com.iprody;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/*
+Инкрементальный разбор HTTP-запроса прямо из байтов буфера чтения соединения.
+
+- Буфер переиспользуется всё время жизни соединения. После каждого чтения из сокета parse() продолжает
+  с того места, где остановился в прошлый раз, и не сканирует уже просмотренные байты заново.
+- Строки создаются только для пути и значений заголовков, которые нужны серверу (HttpRequest.KNOWN_HEADERS).
+  Имена заголовков сравниваются с известными побайтно без учёта регистра, остальные заголовки пропускаются.
+  Метод и версия протокола берутся из констант.
+- Размер блока заголовков ограничен ёмкостью буфера, количество заголовков - MAX_HEADERS.
+  При нарушении лимитов или некорректном запросе бросается IOException, и соединение закрывается.
+- Тело запроса не разбирается: Content-Length и Transfer-Encoding только сохраняются, а на запрос с телом
+  сервер отвечает 400 и закрывает соединение (HttpRequest.hasBody). Повторяющиеся заголовки объединяются
+  через ", " (RFC 9110, 5.3), так что второй "Content-Length: 0" не скроет первый.
+ */
+final class HttpRequestParser {
+
+    static final int MAX_HEADERS = Integer.getInteger("http.max-headers", 100);
+
+    private static final byte[][] KNOWN_HEADER_NAMES = new byte[HttpRequest.KNOWN_HEADERS.length][];
+    private static final String[] METHODS = {"GET", "HEAD", "POST", "PUT", "DELETE", "OPTIONS"};
+    private static final String[] VERSIONS = {"HTTP/1.1", "HTTP/1.0"};
+
+    static {
+        for (int i = 0; i < KNOWN_HEADER_NAMES.length; i++) {
+            KNOWN_HEADER_NAMES[i] = HttpRequest.KNOWN_HEADERS[i].getBytes(StandardCharsets.US_ASCII);
+        }
+    }
+
+    // Состояние разбора текущего запроса между вызовами parse()
+    private int scanned;
+    private int lineStart;
+    private int headerCount;
+    private String method;
+    private String path;
+    private String version;
+    private String[] headers = new String[HttpRequest.KNOWN_HEADERS.length];
+
+    /*
+    Разбирает очередной запрос из буфера в режиме записи (данные - от 0 до position).
+    Возвращает запрос, если его заголовки получены целиком, и сдвигает оставшиеся байты
+    (следующий запрос при pipelining) в начало буфера. Возвращает null, если нужно дочитать данные.
+     */
+    HttpRequest parse(ByteBuffer buffer) throws IOException {
+        byte[] bytes = buffer.array();
+        int end = buffer.position();
+
+        for (; scanned < end; scanned++) {
+            if (bytes[scanned] != '\n') {
+                continue;
+            }
+            int lineEnd = scanned > lineStart && bytes[scanned - 1] == '\r' ? scanned - 1 : scanned;
+            int nextLine = scanned + 1;
+
+            if (method == null) {
+                parseRequestLine(bytes, lineStart, lineEnd);
+            } else if (lineEnd == lineStart) {
+                // пустая строка - заголовки закончились
+                HttpRequest request = new HttpRequest(method, path, version, headers);
+                buffer.flip();
+                buffer.position(nextLine);
+                buffer.compact();
+                reset();
+                return request;
+            } else {
+                parseHeader(bytes, lineStart, lineEnd);
+            }
+            lineStart = nextLine;
+        }
+
+        if (!buffer.hasRemaining()) {
+            throw new IOException("Request head is larger than " + buffer.capacity() + " bytes");
+        }
+        return null;
+    }
+
+    private void reset() {
+        scanned = 0;
+        lineStart = 0;
+        headerCount = 0;
+        method = null;
+        path = null;
+        version = null;
+        headers = new String[HttpRequest.KNOWN_HEADERS.length];
+    }
+
+    // "GET /lorem.html HTTP/1.1"
+    private void parseRequestLine(byte[] bytes, int from, int to) throws IOException {
+        int firstSpace = indexOf(bytes, from, to, (byte) ' ');
+        int secondSpace = firstSpace < 0 ? -1 : indexOf(bytes, firstSpace + 1, to, (byte) ' ');
+        if (secondSpace < 0 || secondSpace == firstSpace + 1 || bytes[firstSpace + 1] != '/'
+                || indexOf(bytes, secondSpace + 1, to, (byte) ' ') >= 0) {
+            throw new IOException("Malformed request line");
+        }
+
+        method = constant(METHODS, bytes, from, firstSpace);
+        path = new String(bytes, firstSpace + 1, secondSpace - firstSpace - 1, StandardCharsets.ISO_8859_1);
+        version = constant(VERSIONS, bytes, secondSpace + 1, to);
+    }
+
+    // "Accept-Encoding: gzip, br" - строка значения создаётся, только если заголовок известен серверу
+    private void parseHeader(byte[] bytes, int from, int to) throws IOException {
+        if (++headerCount > MAX_HEADERS) {
+            throw new IOException("Request has more than " + MAX_HEADERS + " headers");
+        }
+        int colon = indexOf(bytes, from, to, (byte) ':');
+        if (colon <= from) {
+            throw new IOException("Malformed header line");
+        }
+
+        int index = knownHeader(bytes, from, colon);
+        if (index < 0) {
+            return;
+        }
+        int valueStart = colon + 1;
+        int valueEnd = to;
+        while (valueStart < valueEnd && isWhitespace(bytes[valueStart])) {
+            valueStart++;
+        }
+        while (valueEnd > valueStart && isWhitespace(bytes[valueEnd - 1])) {
+            valueEnd--;
+        }
+        String value = new String(bytes, valueStart, valueEnd - valueStart, StandardCharsets.ISO_8859_1);
+        headers[index] = headers[index] == null ? value : headers[index] + ", " + value;
+    }
+
+    private static int knownHeader(byte[] bytes, int from, int to) {
+        for (int i = 0; i < KNOWN_HEADER_NAMES.length; i++) {
+            if (equalsIgnoreCase(KNOWN_HEADER_NAMES[i], bytes, from, to)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Известные значения (метод, версия) берутся из констант, для остальных создаётся строка
+    private static String constant(String[] constants, byte[] bytes, int from, int to) {
+        for (String constant : constants) {
+            if (equalsAscii(constant, bytes, from, to)) {
+                return constant;
+            }
+        }
+        return new String(bytes, from, to - from, StandardCharsets.ISO_8859_1);
+    }
+
+    private static boolean equalsAscii(String value, byte[] bytes, int from, int to) {
+        if (value.length() != to - from) {
+            return false;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) != bytes[from + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // lowerCaseName - имя заголовка в нижнем регистре (ASCII)
+    private static boolean equalsIgnoreCase(byte[] lowerCaseName, byte[] bytes, int from, int to) {
+        if (lowerCaseName.length != to - from) {
+            return false;
+        }
+        for (int i = 0; i < lowerCaseName.length; i++) {
+            byte b = bytes[from + i];
+            if (b >= 'A' && b <= 'Z') {
+                b += 'a' - 'A';
+            }
+            if (b != lowerCaseName[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int indexOf(byte[] bytes, int from, int to, byte value) {
+        for (int i = from; i < to; i++) {
+            if (bytes[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t';
+    }
+}
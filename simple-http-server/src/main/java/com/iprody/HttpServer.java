@@ -3,17 +3,34 @@ package com.iprody;
 import java.io.*;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Executors;
 
 public class HttpServer {
 
     private static final String STATIC = "simple-http-server/static";
     private static final Map<String, String> CONTENT_TYPES = new HashMap<>();
 
+    // Параметры постоянных соединений (keep-alive) для режимов nio, virtual и pool
+    static final int KEEP_ALIVE_TIMEOUT_MS = Integer.getInteger("http.keep-alive-timeout-ms", 5000);
+    static final int KEEP_ALIVE_MAX_REQUESTS = Integer.getInteger("http.keep-alive-max-requests", 100);
+    // Максимальный размер строки запроса вместе с заголовками
+    static final int MAX_REQUEST_HEAD = 8192;
+
+    static final byte[] NOT_FOUND_BODY = "<h1>404 Not Found</h1>".getBytes(StandardCharsets.US_ASCII);
+
     static {
         CONTENT_TYPES.put("html", "text/html");
         CONTENT_TYPES.put("png", "image/png");
@@ -21,18 +38,80 @@ public class HttpServer {
         CONTENT_TYPES.put("txt", "text/plain");
     }
 
+    /*
+    Режим работы сервера задаётся системными свойствами:
+    - http.mode            - classic (по умолчанию, один поток и один клиент за раз),
+                             nio (Selector + event loops),
+                             virtual (отдельный виртуальный поток на каждое соединение),
+                             pool (фиксированный пул платформенных потоков)
+    - http.port            - порт, по умолчанию 8080
+    - http.event-loops     - количество потоков event loop для режима nio, по умолчанию равно числу ядер
+    - http.max-concurrency - максимум одновременно обслуживаемых соединений в режимах virtual и pool
+    - http.pool-size       - размер пула потоков для режима pool
+    - http.keep-alive-timeout-ms, http.keep-alive-max-requests - сколько соединение может простаивать
+                             и сколько запросов можно обслужить в одном соединении (кроме режима classic)
+    - http.cache.max-bytes, http.cache.max-file-bytes - общий бюджет кэша статических файлов в памяти
+                             и максимальный размер одного кэшируемого файла (кроме режима classic)
+    - http.log.sample-rate - в лог пишется в среднем один запрос из стольких (кроме режима classic);
+                             метрики этих режимов доступны по пути /_metrics
+     */
     public static void main(String[] args) throws IOException {
+        final String mode = System.getProperty("http.mode", "classic").toLowerCase();
+        final int port = Integer.getInteger("http.port", 8080);
+        final int maxConcurrency = Integer.getInteger("http.max-concurrency", 10_000);
+
+        if ("classic".equals(mode)) {
+            runClassic(port);
+            return;
+        }
+
+        final StaticAssetCache assets = new StaticAssetCache(Paths.get(STATIC),
+                Long.getLong("http.cache.max-bytes", 64L * 1024 * 1024),
+                Long.getLong("http.cache.max-file-bytes", 4L * 1024 * 1024));
+        assets.startWatching();
+        final StaticFileHandler handler = new StaticFileHandler(assets, new ServerMetrics());
+
+        switch (mode) {
+            case "nio" -> {
+                final int eventLoops = Integer.getInteger("http.event-loops",
+                        Runtime.getRuntime().availableProcessors());
+                new NioHttpServer(port, eventLoops, handler).start();
+            }
+            case "virtual" -> new ThreadPerConnectionServer(port, "virtual",
+                    Executors.newVirtualThreadPerTaskExecutor(), maxConcurrency, handler).start();
+            case "pool" -> {
+                final int poolSize = Integer.getInteger("http.pool-size", 200);
+                new ThreadPerConnectionServer(port, "pool of " + poolSize,
+                        Executors.newFixedThreadPool(poolSize), Math.min(maxConcurrency, poolSize), handler).start();
+            }
+            default -> throw new IllegalArgumentException("Unknown http.mode: " + mode);
+        }
+    }
+
+    private static void runClassic(int port) throws IOException {
     /*
     ServerSocket:
     - Представляет серверный сетевой сокет.
     - Ожидает входящие подключения на указанном порту (8080) по протоколу TCP/IP.
      */
-        ServerSocket serverSocket = new ServerSocket(8080);
-        System.out.println("Server started at http://localhost:8080");
+        ServerSocket serverSocket = new ServerSocket(port);
+        System.out.println("Server started at http://localhost:" + port);
 
         while (true) {
             // Метод accept() блокирует выполнение до тех пор, пока не подключится клиент, и возвращает объект Socket.
             Socket clientSocket = serverSocket.accept();
+            try {
+                handleClient(clientSocket);
+            } catch (IOException e) {
+                // некорректный запрос или обрыв соединения не должны останавливать сервер
+                System.out.println("Error while serving " + clientSocket.getRemoteSocketAddress() + ": " + e);
+            }
+        }
+    }
+
+    // Обработка одного соединения: чтение запроса, отправка ответа и закрытие сокета
+    static void handleClient(Socket clientSocket) throws IOException {
+        try (clientSocket) {
       /*
       Socket:
       - Представляет соединение с одним конкретным клиентом по двоичному протоколу TCP/IP
@@ -40,54 +119,166 @@ public class HttpServer {
         getInputStream() — для чтения данных, приходящих от клиента (запрос).
         getOutputStream() — для отправки данных клиенту (ответ).
        */
-            BufferedReader in = new BufferedReader(
-                    new InputStreamReader(clientSocket.getInputStream()));
+            InputStream in = clientSocket.getInputStream();
             OutputStream out = clientSocket.getOutputStream();
 
             // Чтение запроса
-            String line;
-            String fileName = getUrlFileName(in.readLine());
-            while ((line = in.readLine()) != null && !line.isEmpty()) {
-                System.out.println(line);
+            HttpRequest request = readRequest(in, ByteBuffer.allocate(MAX_REQUEST_HEAD), new HttpRequestParser());
+            if (request == null) {
+                return;
             }
+            System.out.println(request.method() + " " + request.path() + " " + request.version());
 
-            Path staticDir = Paths.get(STATIC).toAbsolutePath().normalize();
-            Path filePath = staticDir.resolve(fileName).normalize();
-
-            // Проверка безопасности - проверяем, чтобы путь не позволял выйти за пределы директории static/.
-            // + проверка существования файла
-            if (!filePath.startsWith(staticDir) || !Files.exists(filePath)) {
+            Path filePath = resolveStaticFile(request.fileName());
+            if (filePath == null) {
                 sendErrorResponse(out);
             } else {
-                sendResponse(out, filePath, fileName);
+                sendResponse(out, filePath, request.fileName());
             }
 
             out.flush();
-            clientSocket.close();
         }
     }
 
-    private static String getUrlFileName(String firstLine) {
-        if (firstLine == null || firstLine.isEmpty()) {
-            return firstLine;
+    /*
+    Обработка постоянного (keep-alive) соединения: в одном соединении последовательно обслуживаются
+    несколько запросов, пока клиент не попросит "Connection: close", соединение не простоит дольше
+    KEEP_ALIVE_TIMEOUT_MS или не будет достигнут лимит KEEP_ALIVE_MAX_REQUESTS.
+    Запросы, отправленные клиентом подряд без ожидания ответа (pipelining), остаются в буфере
+    чтения соединения и обрабатываются по очереди, поэтому ответы уходят в том же порядке.
+     */
+    static void handleKeepAliveClient(Socket clientSocket, StaticFileHandler handler) throws IOException {
+        try (clientSocket) {
+            clientSocket.setSoTimeout(KEEP_ALIVE_TIMEOUT_MS);
+            InputStream in = clientSocket.getInputStream();
+            ByteBuffer readBuffer = ByteBuffer.allocate(MAX_REQUEST_HEAD);
+            HttpRequestParser parser = new HttpRequestParser();
+            // Ответ пишем прямо в канал сокета (zero-copy для файлов), если сокет создан через ServerSocketChannel
+            WritableByteChannel target = clientSocket.getChannel() != null
+                    ? clientSocket.getChannel()
+                    : Channels.newChannel(clientSocket.getOutputStream());
+            Deque<ResponsePart> parts = new ArrayDeque<>();
+
+            for (int served = 1; served <= KEEP_ALIVE_MAX_REQUESTS; served++) {
+                HttpRequest request;
+                try {
+                    request = readRequest(in, readBuffer, parser);
+                } catch (SocketTimeoutException e) {
+                    // соединение простаивало дольше таймаута
+                    return;
+                }
+                if (request == null) {
+                    return;
+                }
+                boolean keepAlive = request.keepAlive() && served < KEEP_ALIVE_MAX_REQUESTS;
+
+                try {
+                    handler.respond(request, keepAlive, parts);
+                    writeParts(target, parts);
+                } finally {
+                    // при ошибке закрываем оставшиеся части ответа (открытые файлы)
+                    closeParts(parts);
+                }
+                if (!keepAlive) {
+                    return;
+                }
+            }
         }
+    }
 
-        // Выводим в консоль первую строчку, чтобы не нарушать старую логику
-        System.out.println(firstLine);
-        String[] segments = firstLine.split(" ");
-        // Избавляемся от / в имени файла
-        return segments[1].substring(1);
+    // Блокирующая запись частей ответа по порядку
+    private static void writeParts(WritableByteChannel target, Queue<ResponsePart> parts) throws IOException {
+        ResponsePart part;
+        while ((part = parts.peek()) != null) {
+            while (!part.writeTo(target)) {
+                // канал блокирующий, но write может отправить не всё за один вызов
+            }
+            parts.poll().close();
+        }
     }
 
-    private static void sendResponse(OutputStream out, Path filePath, String fileName) throws IOException {
-        String extension = fileName.split("\\.") [1];
-        String contentType = CONTENT_TYPES.get(extension);
+    private static void closeParts(Queue<ResponsePart> parts) throws IOException {
+        ResponsePart part;
+        while ((part = parts.poll()) != null) {
+            part.close();
+        }
+    }
 
-        String headers = "HTTP/1.1 200 OK\r\n" +
+    /*
+    Читает из потока в буфер, пока в нём не окажется запрос целиком. Байты, прочитанные сверх него
+    (следующий запрос при pipelining), остаются в буфере. Возвращает null, если клиент закрыл соединение.
+     */
+    static HttpRequest readRequest(InputStream in, ByteBuffer buffer, HttpRequestParser parser) throws IOException {
+        HttpRequest request;
+        while ((request = parser.parse(buffer)) == null) {
+            int read = in.read(buffer.array(), buffer.position(), buffer.remaining());
+            if (read == -1) {
+                return null;
+            }
+            buffer.position(buffer.position() + read);
+        }
+        return request;
+    }
+
+    /*
+    Возвращает путь к файлу внутри static/ или null, если файл не найден.
+    Проверка безопасности - проверяем, чтобы путь не позволял выйти за пределы директории static/.
+    + проверка существования файла
+     */
+    static Path resolveStaticFile(String fileName) {
+        if (fileName == null) {
+            return null;
+        }
+
+        Path staticDir = Paths.get(STATIC).toAbsolutePath().normalize();
+        Path filePath = staticDir.resolve(fileName).normalize();
+
+        if (!filePath.startsWith(staticDir) || !Files.isRegularFile(filePath)) {
+            return null;
+        }
+        return filePath;
+    }
+
+    static String contentType(String fileName) {
+        int dot = fileName.lastIndexOf('.');
+        String extension = dot < 0 ? "" : fileName.substring(dot + 1);
+        return CONTENT_TYPES.getOrDefault(extension, "application/octet-stream");
+    }
+
+    // Формирует строку статуса и заголовки ответа (заканчиваются пустой строкой)
+    static byte[] responseHeaders(String status, String contentType, long contentLength, boolean keepAlive) {
+        return responseHeaders(status, contentType, contentLength, keepAlive, "");
+    }
+
+    // extraHeaders - дополнительные заголовки, каждый в формате "Name: value\r\n"
+    static byte[] responseHeaders(String status, String contentType, long contentLength, boolean keepAlive,
+            String extraHeaders) {
+        String headers = "HTTP/1.1 " + status + "\r\n" +
                 "Content-Type: " + contentType + "\r\n" +
-                "Content-Length: " + Files.size(filePath) + "\r\n" +
+                "Content-Length: " + contentLength + "\r\n" +
+                extraHeaders +
+                connectionHeaders(keepAlive) +
                 "\r\n";
-        out.write(headers.getBytes());
+        return headers.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    // Ответ 304 без тела: только заголовки представления (ETag, Last-Modified, Cache-Control, Vary)
+    static byte[] notModifiedHeaders(String headerFields, boolean keepAlive) {
+        String headers = "HTTP/1.1 304 Not Modified\r\n" +
+                headerFields +
+                connectionHeaders(keepAlive) +
+                "\r\n";
+        return headers.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static String connectionHeaders(boolean keepAlive) {
+        return keepAlive
+                ? "Connection: keep-alive\r\nKeep-Alive: timeout=" + KEEP_ALIVE_TIMEOUT_MS / 1000 + "\r\n"
+                : "Connection: close\r\n";
+    }
+
+    private static void sendResponse(OutputStream out, Path filePath, String fileName) throws IOException {
+        out.write(responseHeaders("200 OK", contentType(fileName), Files.size(filePath), false));
 
         try (BufferedInputStream fileIn = new BufferedInputStream(Files.newInputStream(filePath))) {
             byte[] buffer = new byte[8192];
@@ -99,15 +290,7 @@ public class HttpServer {
     }
 
     private static void sendErrorResponse(OutputStream out) throws IOException {
-        String response = "<h1>404 Not Found</h1>";
-        byte[] body = response.getBytes();
-
-        String headers = "HTTP/1.1 404 Not Found\r\n" +
-                "Content-Type: text/html\r\n" +
-                "Content-Length: " + body.length + "\r\n" +
-                "\r\n";
-
-        out.write(headers.getBytes());
-        out.write(body);
+        out.write(responseHeaders("404 Not Found", "text/html", NOT_FOUND_BODY.length, false));
+        out.write(NOT_FOUND_BODY);
     }
 }
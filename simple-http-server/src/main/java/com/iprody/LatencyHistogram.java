@@ -0,0 +1,96 @@
+package com.iprody;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+Гистограмма задержек в духе HdrHistogram: логарифмические корзины, каждая степень двойки
+разбита на SUB_BUCKETS линейных под-корзин, поэтому относительная погрешность не больше ~6%
+при любом порядке величины - от микросекунд до минут.
+
+Запись - одно увеличение LongAdder без блокировок и аллокаций: при конкуренции потоков
+LongAdder раскладывает счётчик по ячейкам (striping), и потоки не бьются за одну cache line.
+Перцентили считаются только при чтении (скрейп /_metrics) по снимку счётчиков.
+ */
+final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // Значения больше 2^40 мкс (~12 дней) попадают в последнюю корзину
+    private static final int MAX_EXPONENT = 40;
+    private static final int BUCKET_COUNT = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+    private final LongAdder[] buckets = new LongAdder[BUCKET_COUNT];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sumMicros = new LongAdder();
+
+    LatencyHistogram() {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    void record(long micros) {
+        long value = Math.max(0, micros);
+        buckets[Math.min(index(value), BUCKET_COUNT - 1)].increment();
+        count.increment();
+        sumMicros.add(value);
+    }
+
+    long count() {
+        return count.sum();
+    }
+
+    long sumMicros() {
+        return sumMicros.sum();
+    }
+
+    /*
+    Значение, не превышающее заданную долю (0.99 - p99) записанных задержек, в микросекундах.
+    Возвращается верхняя граница корзины, как "highest equivalent value" в HdrHistogram.
+     */
+    long[] percentiles(double... quantiles) {
+        long[] snapshot = new long[BUCKET_COUNT];
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            snapshot[i] = buckets[i].sum();
+            total += snapshot[i];
+        }
+
+        long[] result = new long[quantiles.length];
+        for (int q = 0; q < quantiles.length; q++) {
+            long rank = Math.max(1, (long) Math.ceil(quantiles[q] * total));
+            long seen = 0;
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                seen += snapshot[i];
+                if (seen >= rank) {
+                    result[q] = upperBound(i);
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
+    // Значения меньше SUB_BUCKETS хранятся точно, дальше - по SUB_BUCKETS корзин на степень двойки
+    static int index(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    static long lowerBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long subBucket = index % SUB_BUCKETS;
+        return (SUB_BUCKETS + subBucket) << (exponent - SUB_BUCKET_BITS);
+    }
+
+    static long upperBound(int index) {
+        return lowerBound(index + 1) - 1;
+    }
+}
@@ -0,0 +1,343 @@
+package com.iprody;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/*
+Неблокирующий режим сервера на основе ServerSocketChannel + Selector.
+
+- Поток-acceptor принимает подключения и раздаёт их по кругу между event loop'ами.
+- Каждый event loop - отдельный поток со своим Selector, который обслуживает тысячи соединений:
+  ни один медленный клиент не блокирует остальных, т.к. чтение и запись никогда не ждут сеть.
+- У каждого соединения свой буфер чтения и своя очередь буферов на запись. Если сокет принял
+  только часть ответа (partial write), остаток дописывается, когда канал снова станет доступен для записи.
+- Соединения постоянные (keep-alive): после ответа соединение снова ждёт чтения, а простаивающие
+  дольше http.keep-alive-timeout-ms соединения event loop закрывает сам.
+- Event loop никогда не обращается к файловой системе: если запрошенного файла нет в кэше (в том числе
+  404 и файлы больше http.cache.max-file-bytes), соединение перестаёт читать новые запросы, а ответ целиком -
+  загрузка в кэш, атрибуты файла, открытые FileRegion - готовится в виртуальном потоке. Event loop только
+  ставит готовые части в очередь записи и продолжает разбирать запросы соединения. Остальные соединения
+  event loop'а в это время обслуживаются как обычно.
+ */
+final class NioHttpServer {
+
+    private static final int ACCEPT_BACKLOG = 4096;
+
+    private final int port;
+    private final EventLoop[] eventLoops;
+    private final StaticFileHandler handler;
+    // Ответы, требующие файловой системы (промах кэша), готовятся вне event loop'ов
+    private final ExecutorService loader = Executors.newVirtualThreadPerTaskExecutor();
+
+    NioHttpServer(int port, int eventLoopCount, StaticFileHandler handler) {
+        this.port = port;
+        this.eventLoops = new EventLoop[Math.max(1, eventLoopCount)];
+        this.handler = handler;
+    }
+
+    void start() throws IOException {
+        for (int i = 0; i < eventLoops.length; i++) {
+            eventLoops[i] = new EventLoop();
+            Thread thread = new Thread(eventLoops[i], "http-event-loop-" + i);
+            thread.start();
+        }
+
+        try (ServerSocketChannel serverChannel = ServerSocketChannel.open()) {
+            serverChannel.bind(new InetSocketAddress(port), ACCEPT_BACKLOG);
+            System.out.println("Server (nio, " + eventLoops.length + " event loops) started at http://localhost:"
+                    + port);
+
+            // accept() здесь блокирующий: acceptor ничего больше не делает, а вся работа с сокетами - в event loop'ах
+            int next = 0;
+            while (serverChannel.isOpen()) {
+                SocketChannel client = null;
+                try {
+                    client = serverChannel.accept();
+                    eventLoops[next].register(client);
+                    next = (next + 1) % eventLoops.length;
+                } catch (ClosedChannelException e) {
+                    // Сокет закрыт - сервер остановлен
+                    return;
+                } catch (IOException | RuntimeException e) {
+                    // Ошибка одного accept (EMFILE, ECONNABORTED) не останавливает acceptor:
+                    // иначе event loop'ы продолжили бы работать, а новые соединения больше не принимались бы
+                    ThreadPerConnectionServer.closeQuietly(client);
+                    System.out.println("Error while accepting a connection: " + e);
+                    ThreadPerConnectionServer.pauseAfterAcceptError();
+                }
+            }
+        }
+    }
+
+    private final class EventLoop implements Runnable {
+
+        // Как часто проверять соединения на простой
+        private static final long IDLE_CHECK_INTERVAL_MS = 1000;
+
+        private final Selector selector;
+        // Новые соединения передаются из потока-acceptor'а и регистрируются в Selector уже в потоке event loop'а
+        private final Queue<SocketChannel> pending = new ConcurrentLinkedQueue<>();
+        // Задачи из других потоков (продолжение соединения после загрузки файла) - выполняются в event loop'е
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+
+        EventLoop() throws IOException {
+            this.selector = Selector.open();
+        }
+
+        void register(SocketChannel channel) {
+            pending.add(channel);
+            selector.wakeup();
+        }
+
+        void execute(Runnable task) {
+            tasks.add(task);
+            selector.wakeup();
+        }
+
+        @Override
+        public void run() {
+            long nextIdleCheck = System.currentTimeMillis() + IDLE_CHECK_INTERVAL_MS;
+            try {
+                while (true) {
+                    selector.select(IDLE_CHECK_INTERVAL_MS);
+                    registerPending();
+                    runTasks();
+
+                    long now = System.currentTimeMillis();
+                    Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+
+                        Connection connection = (Connection) key.attachment();
+                        connection.lastActivity = now;
+                        try {
+                            if (key.isValid() && key.isReadable()) {
+                                connection.onReadable();
+                            }
+                            if (key.isValid() && key.isWritable()) {
+                                connection.onWritable();
+                            }
+                        } catch (IOException | RuntimeException e) {
+                            connection.close();
+                        }
+                    }
+
+                    if (now >= nextIdleCheck) {
+                        closeIdleConnections(now);
+                        nextIdleCheck = now + IDLE_CHECK_INTERVAL_MS;
+                    }
+                }
+            } catch (IOException | ClosedSelectorException e) {
+                System.out.println("Event loop stopped: " + e.getMessage());
+            }
+        }
+
+        private void registerPending() {
+            SocketChannel channel;
+            while ((channel = pending.poll()) != null) {
+                try {
+                    channel.configureBlocking(false);
+                    SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+                    key.attach(new Connection(this, channel, key));
+                } catch (IOException e) {
+                    closeQuietly(channel);
+                }
+            }
+        }
+
+        private void runTasks() {
+            Runnable task;
+            while ((task = tasks.poll()) != null) {
+                task.run();
+            }
+        }
+
+        // Закрываем keep-alive соединения, которые ничего не присылали дольше таймаута
+        private void closeIdleConnections(long now) {
+            for (SelectionKey key : selector.keys()) {
+                Connection connection = (Connection) key.attachment();
+                if (connection != null && connection.writeQueue.isEmpty() && !connection.loading
+                        && now - connection.lastActivity > HttpServer.KEEP_ALIVE_TIMEOUT_MS) {
+                    connection.close();
+                }
+            }
+        }
+    }
+
+    private final class Connection {
+
+        private final EventLoop eventLoop;
+        private final SocketChannel channel;
+        private final SelectionKey key;
+        private final ByteBuffer readBuffer = ByteBuffer.allocate(HttpServer.MAX_REQUEST_HEAD);
+        private final HttpRequestParser parser = new HttpRequestParser();
+        private final Deque<ResponsePart> writeQueue = new ArrayDeque<>();
+
+        private long lastActivity = System.currentTimeMillis();
+        private int requestsServed;
+        // Выставляется, когда ответ на последний обслуживаемый запрос уже в очереди
+        private boolean closeAfterWrite;
+        // Ответ на очередной запрос готовится вне event loop'а; новые запросы до него не читаются
+        private boolean loading;
+
+        Connection(EventLoop eventLoop, SocketChannel channel, SelectionKey key) {
+            this.eventLoop = eventLoop;
+            this.channel = channel;
+            this.key = key;
+            handler.metrics().connectionOpened();
+        }
+
+        void onReadable() throws IOException {
+            int read = channel.read(readBuffer);
+            if (read == -1) {
+                close();
+                return;
+            }
+
+            /*
+            В буфере может оказаться сразу несколько запросов (pipelining): разбираем их все по порядку
+            и ставим ответы в очередь записи в том же порядке. Неполный запрос парсер дочитает после следующего read.
+            Некорректный запрос или превышение лимитов - IOException, и event loop закрывает соединение.
+             */
+            serveBuffered();
+        }
+
+        // Отвечает на запросы, уже полученные в буфер чтения, пока не встретится промах кэша
+        private void serveBuffered() throws IOException {
+            HttpRequest request;
+            while (!closeAfterWrite && (request = parser.parse(readBuffer)) != null) {
+                if (handler.needsFileSystem(request)) {
+                    serveOffLoop(request);
+                    break;
+                }
+                serve(request);
+            }
+
+            if (!writeQueue.isEmpty()) {
+                // Пока ответы не отправлены - не читаем новые запросы, а ждём возможности записи
+                key.interestOps(SelectionKey.OP_WRITE);
+                onWritable();
+            } else if (loading) {
+                key.interestOps(0);
+            }
+        }
+
+        private void serve(HttpRequest request) throws IOException {
+            handler.respond(request, nextKeepAlive(request), writeQueue);
+        }
+
+        private boolean nextKeepAlive(HttpRequest request) {
+            requestsServed++;
+            boolean keepAlive = request.keepAlive() && requestsServed < HttpServer.KEEP_ALIVE_MAX_REQUESTS;
+            closeAfterWrite = !keepAlive;
+            return keepAlive;
+        }
+
+        /*
+        Ответ готовится в виртуальном потоке в отдельную очередь частей, а event loop затем только переносит
+        её в очередь записи и продолжает разбирать буфер. null вместо частей - ошибка, соединение закрывается.
+         */
+        private void serveOffLoop(HttpRequest request) {
+            loading = true;
+            boolean keepAlive = nextKeepAlive(request);
+            loader.execute(() -> {
+                Deque<ResponsePart> parts = new ArrayDeque<>();
+                Deque<ResponsePart> result = parts;
+                try {
+                    handler.respond(request, keepAlive, parts);
+                } catch (IOException | RuntimeException e) {
+                    closeParts(parts);
+                    result = null;
+                }
+                Deque<ResponsePart> prepared = result;
+                eventLoop.execute(() -> resume(prepared));
+            });
+        }
+
+        private void resume(Deque<ResponsePart> parts) {
+            if (!key.isValid()) {
+                // соединение закрыто, пока готовился ответ
+                closeParts(parts);
+                return;
+            }
+            if (parts == null) {
+                close();
+                return;
+            }
+            loading = false;
+            lastActivity = System.currentTimeMillis();
+            writeQueue.addAll(parts);
+            try {
+                serveBuffered();
+            } catch (IOException | RuntimeException e) {
+                close();
+            }
+        }
+
+        void onWritable() throws IOException {
+            while (!writeQueue.isEmpty()) {
+                ResponsePart part = writeQueue.peek();
+                if (!part.writeTo(channel)) {
+                    // Сокет принял только часть данных - допишем, когда он снова будет готов к записи
+                    return;
+                }
+                writeQueue.poll().close();
+            }
+
+            if (closeAfterWrite && !loading) {
+                close();
+            } else {
+                key.interestOps(loading ? 0 : SelectionKey.OP_READ);
+            }
+        }
+
+        void close() {
+            if (!key.isValid()) {
+                // соединение уже закрыто
+                return;
+            }
+            handler.metrics().connectionClosed();
+            key.cancel();
+            closeQuietly(channel);
+            closeParts(writeQueue);
+        }
+    }
+
+    // Закрывает неотправленные части ответа (открытые FileRegion)
+    private static void closeParts(Queue<ResponsePart> parts) {
+        if (parts == null) {
+            return;
+        }
+        ResponsePart part;
+        while ((part = parts.poll()) != null) {
+            try {
+                part.close();
+            } catch (IOException ignored) {
+                // файл уже закрыт
+            }
+        }
+    }
+
+    private static void closeQuietly(SocketChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+            // соединение уже закрыто
+        }
+    }
+}
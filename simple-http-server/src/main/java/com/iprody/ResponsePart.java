@@ -0,0 +1,51 @@
+package com.iprody;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/*
+Часть HTTP-ответа (заголовки, тело из памяти или фрагмент файла), которую можно
+записывать в канал порциями. Нужна неблокирующему режиму: сокет может принять только
+часть данных, и запись продолжится, когда канал снова станет доступен.
+ */
+interface ResponsePart extends Closeable {
+
+    /**
+     * Записывает в канал столько данных, сколько он готов принять.
+     *
+     * @param channel канал сокета
+     * @return true, если часть отправлена целиком
+     */
+    boolean writeTo(WritableByteChannel channel) throws IOException;
+
+    // Сколько байт ещё осталось отправить
+    long length();
+
+    @Override
+    default void close() throws IOException {
+    }
+
+    static ResponsePart of(byte[] bytes) {
+        return new BufferPart(ByteBuffer.wrap(bytes));
+    }
+
+    static ResponsePart of(ByteBuffer buffer) {
+        return new BufferPart(buffer);
+    }
+
+    record BufferPart(ByteBuffer buffer) implements ResponsePart {
+
+        @Override
+        public boolean writeTo(WritableByteChannel channel) throws IOException {
+            channel.write(buffer);
+            return !buffer.hasRemaining();
+        }
+
+        @Override
+        public long length() {
+            return buffer.remaining();
+        }
+    }
+}
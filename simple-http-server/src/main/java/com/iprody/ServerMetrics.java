@@ -0,0 +1,108 @@
+package com.iprody;
+
+import java.nio.channels.WritableByteChannel;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+Метрики сервера для режимов nio, virtual и pool, отдаются по пути /_metrics в текстовом формате Prometheus.
+
+- Все счётчики - LongAdder: на горячем пути только инкременты без блокировок, сумма считается при скрейпе.
+  Запросы в секунду Prometheus получает как rate(http_requests_total[1m]).
+- Задержка меряется от разбора запроса до записи последнего байта ответа в сокет и хранится
+  в LatencyHistogram отдельно для каждого Content-Type.
+- Вместо печати каждого запроса в консоль логируется только выборка: в среднем один запрос
+  из http.log.sample-rate (0 - не логировать вовсе).
+ */
+final class ServerMetrics {
+
+    static final String PATH = "/_metrics";
+    static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private static final int LOG_SAMPLE_RATE = Integer.getInteger("http.log.sample-rate", 100);
+    private static final double[] QUANTILES = {0.5, 0.99, 0.999};
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder bytesSent = new LongAdder();
+    private final LongAdder openConnections = new LongAdder();
+    private final Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+    private final Map<String, LatencyHistogram> latencies = new ConcurrentHashMap<>();
+
+    void connectionOpened() {
+        openConnections.increment();
+    }
+
+    void connectionClosed() {
+        openConnections.decrement();
+    }
+
+    /*
+    Часть ответа, которая ставится в очередь последней: когда до неё доходит запись, весь ответ
+    уже отправлен, и можно фиксировать задержку. Если соединение оборвалось раньше, запрос не учитывается.
+     */
+    ResponsePart completion(HttpRequest request, long startedNanos, int status, String contentType, long bytes) {
+        return new ResponsePart() {
+            @Override
+            public boolean writeTo(WritableByteChannel channel) {
+                record(request, System.nanoTime() - startedNanos, status, contentType, bytes);
+                return true;
+            }
+
+            @Override
+            public long length() {
+                return 0;
+            }
+        };
+    }
+
+    private void record(HttpRequest request, long elapsedNanos, int status, String contentType, long bytes) {
+        requests.increment();
+        bytesSent.add(bytes);
+        statuses.computeIfAbsent(status, s -> new LongAdder()).increment();
+        latencies.computeIfAbsent(contentType, type -> new LatencyHistogram()).record(elapsedNanos / 1000);
+
+        if (LOG_SAMPLE_RATE > 0 && ThreadLocalRandom.current().nextInt(LOG_SAMPLE_RATE) == 0) {
+            System.out.println(request.method() + " " + request.path() + " " + request.version() + " -> " + status
+                    + ", " + bytes + " bytes, " + elapsedNanos / 1000 + " us");
+        }
+    }
+
+    // Текстовый формат экспозиции Prometheus 0.0.4
+    String render() {
+        StringBuilder out = new StringBuilder(1024);
+        out.append("# HELP http_requests_total Total number of HTTP responses sent.\n")
+                .append("# TYPE http_requests_total counter\n")
+                .append("http_requests_total ").append(requests.sum()).append('\n');
+
+        out.append("# HELP http_responses_total HTTP responses by status code.\n")
+                .append("# TYPE http_responses_total counter\n");
+        statuses.forEach((status, counter) -> out.append("http_responses_total{status=\"").append(status)
+                .append("\"} ").append(counter.sum()).append('\n'));
+
+        out.append("# HELP http_sent_bytes_total Bytes sent in HTTP responses, headers included.\n")
+                .append("# TYPE http_sent_bytes_total counter\n")
+                .append("http_sent_bytes_total ").append(bytesSent.sum()).append('\n');
+
+        out.append("# HELP http_open_connections Currently open client connections.\n")
+                .append("# TYPE http_open_connections gauge\n")
+                .append("http_open_connections ").append(openConnections.sum()).append('\n');
+
+        out.append("# HELP http_request_duration_seconds Time from parsed request to last byte written.\n")
+                .append("# TYPE http_request_duration_seconds summary\n");
+        latencies.forEach((contentType, histogram) -> {
+            long[] values = histogram.percentiles(QUANTILES);
+            for (int i = 0; i < QUANTILES.length; i++) {
+                out.append("http_request_duration_seconds{content_type=\"").append(contentType)
+                        .append("\",quantile=\"").append(QUANTILES[i]).append("\"} ")
+                        .append(values[i] / 1_000_000.0).append('\n');
+            }
+            out.append("http_request_duration_seconds_sum{content_type=\"").append(contentType).append("\"} ")
+                    .append(histogram.sumMicros() / 1_000_000.0).append('\n');
+            out.append("http_request_duration_seconds_count{content_type=\"").append(contentType).append("\"} ")
+                    .append(histogram.count()).append('\n');
+        });
+        return out.toString();
+    }
+}
@@ -0,0 +1,288 @@
+package com.iprody;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/*
+Кэш статических файлов в памяти.
+
+- Содержимое файла хранится в direct ByteBuffer (вне heap), а заголовки ответа отрисованы заранее,
+  поэтому ответ на "горячий" файл не делает ни одного системного вызова к файловой системе:
+  ни Files.exists, ни Files.size, ни открытия файла.
+- Общий объём кэша ограничен бюджетом в байтах; при превышении вытесняются давно не запрашиваемые
+  файлы (LRU - LinkedHashMap в режиме accessOrder).
+- Для текстовых файлов (html, txt) при загрузке один раз готовится gzip-вариант, который отдаётся
+  клиентам с Accept-Encoding: gzip. Уже сжатые форматы (png, jpg) не сжимаются.
+- Фоновый поток с WatchService следит за директорией static/ и всеми её поддиректориями и удаляет из кэша
+  изменённые или удалённые файлы, так что следующий запрос загрузит их актуальную версию.
+  Кэшируются только файлы из директорий, за которыми идёт наблюдение, - иначе их изменения никто бы не заметил.
+- Сброс, пришедший, пока файл читался с диска, не теряется: загрузка запоминает поколение кэша до чтения
+  и не кладёт прочитанное в кэш, если за это время что-то было сброшено.
+ */
+final class StaticAssetCache {
+
+    // Текстовые форматы хорошо сжимаются; png и jpg уже сжаты, и gzip их только увеличит
+    private static final Set<String> COMPRESSIBLE_TYPES = Set.of("text/html", "text/plain");
+
+    /*
+    Файл в кэше: исходное содержимое и, для сжимаемых типов, заранее сжатый gzip-вариант (или null).
+     */
+    record Asset(String fileName, String contentType, long lastModified, Variant identity, Variant gzip) {
+
+        // Выбирает вариант представления по результату согласования Accept-Encoding
+        Variant variant(boolean acceptsGzip) {
+            return acceptsGzip && gzip != null ? gzip : identity;
+        }
+
+        long bytes() {
+            return identity.body().capacity() + (gzip == null ? 0 : gzip.body().capacity());
+        }
+    }
+
+    /*
+    Одно представление файла. body - общий для всех запросов буфер только для чтения:
+    каждому ответу выдаётся его duplicate() со своей позицией.
+    headerFields - заголовки представления (ETag, Last-Modified, Vary...), которые повторяются и в ответе 304.
+     */
+    record Variant(ByteBuffer body, String etag, String headerFields, byte[] keepAliveHeaders, byte[] closeHeaders) {
+
+        ByteBuffer bodyView() {
+            return body.duplicate();
+        }
+
+        byte[] headers(boolean keepAlive) {
+            return keepAlive ? keepAliveHeaders : closeHeaders;
+        }
+    }
+
+    private final Path root;
+    private final long maxBytes;
+    private final long maxFileBytes;
+    private final LinkedHashMap<String, Asset> assets = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+    // Увеличивается при каждом сбросе; загрузка, во время которой был сброс, не попадает в кэш
+    private long generation;
+    // Директории, за которыми следит watcher
+    private final Set<Path> watched = ConcurrentHashMap.newKeySet();
+
+    StaticAssetCache(Path root, long maxBytes, long maxFileBytes) {
+        this.root = root.toAbsolutePath().normalize();
+        this.maxBytes = maxBytes;
+        this.maxFileBytes = Math.min(maxFileBytes, maxBytes);
+    }
+
+    // Поиск без обращения к файловой системе
+    synchronized Asset lookup(String fileName) {
+        return assets.get(fileName);
+    }
+
+    /*
+    Загружает уже найденный файл в кэш. Возвращает null, если файл больше допустимого размера -
+    такие файлы отдаются с диска через FileRegion.
+     */
+    Asset load(Path filePath) throws IOException {
+        String fileName = root.relativize(filePath).toString();
+        Asset cached = lookup(fileName);
+        if (cached != null) {
+            return cached;
+        }
+
+        // Атрибуты читаются до содержимого: если файл изменится во время чтения, watcher сбросит эту версию,
+        // а put увидит новое поколение и не сохранит её
+        long loadGeneration = generation();
+        long lastModified = Files.getLastModifiedTime(filePath).toMillis();
+        ByteBuffer body;
+        try (FileChannel file = FileChannel.open(filePath, StandardOpenOption.READ)) {
+            long size = file.size();
+            if (size > maxFileBytes) {
+                return null;
+            }
+            body = ByteBuffer.allocateDirect((int) size);
+            while (body.hasRemaining() && file.read(body) != -1) {
+                // читаем файл целиком
+            }
+        }
+        body.flip();
+
+        String contentType = HttpServer.contentType(fileName);
+        boolean compressible = COMPRESSIBLE_TYPES.contains(contentType);
+        // Ответ на сжимаемый файл зависит от Accept-Encoding - сообщаем об этом промежуточным кэшам
+        String vary = compressible ? "Vary: Accept-Encoding\r\n" : "";
+
+        String etag = StaticFileHandler.etag(body.remaining(), lastModified);
+
+        Variant identity = variant(body, contentType, etag,
+                StaticFileHandler.validatorHeaders(etag, lastModified) + vary);
+        Variant gzip = null;
+        if (compressible) {
+            ByteBuffer compressed = gzip(body.duplicate());
+            // Сжатый вариант хранится, только если он действительно меньше исходного.
+            // У него свой ETag: сильный валидатор должен различать разные байтовые представления
+            if (compressed.remaining() < body.remaining()) {
+                String gzipEtag = etag.substring(0, etag.length() - 1) + "-gzip\"";
+                gzip = variant(compressed, contentType, gzipEtag,
+                        StaticFileHandler.validatorHeaders(gzipEtag, lastModified) + vary
+                                + "Content-Encoding: gzip\r\n");
+            }
+        }
+
+        Asset asset = new Asset(fileName, contentType, lastModified, identity, gzip);
+        put(asset, loadGeneration);
+        return asset;
+    }
+
+    private synchronized long generation() {
+        return generation;
+    }
+
+    private static Variant variant(ByteBuffer body, String contentType, String etag, String headerFields) {
+        return new Variant(body.asReadOnlyBuffer(), etag, headerFields,
+                HttpServer.responseHeaders("200 OK", contentType, body.remaining(), true, headerFields),
+                HttpServer.responseHeaders("200 OK", contentType, body.remaining(), false, headerFields));
+    }
+
+    // Сжатие выполняется один раз при загрузке файла в кэш, а не на каждый запрос
+    private static ByteBuffer gzip(ByteBuffer source) throws IOException {
+        byte[] bytes = new byte[source.remaining()];
+        source.get(bytes);
+
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(bytes.length / 2 + 64);
+        try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+            out.write(bytes);
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocateDirect(compressed.size());
+        buffer.put(compressed.toByteArray()).flip();
+        return buffer;
+    }
+
+    private synchronized void put(Asset asset, long loadGeneration) {
+        if (loadGeneration != generation || !watched.contains(root.resolve(asset.fileName()).getParent())) {
+            // файл мог измениться во время чтения или его изменения не отслеживаются -
+            // этот ответ отдаём, но в кэш не кладём
+            return;
+        }
+        Asset previous = assets.put(asset.fileName(), asset);
+        if (previous != null) {
+            totalBytes -= previous.bytes();
+        }
+        totalBytes += asset.bytes();
+
+        // Вытесняем наименее востребованные файлы, пока не уложимся в бюджет
+        Iterator<Asset> eldest = assets.values().iterator();
+        while (totalBytes > maxBytes && eldest.hasNext()) {
+            Asset evicted = eldest.next();
+            if (evicted != asset) {
+                eldest.remove();
+                totalBytes -= evicted.bytes();
+            }
+        }
+    }
+
+    /*
+    Сбрасывает файл, а если это директория (удалённая или переименованная) - и все файлы в ней.
+    fileName - путь относительно корня.
+     */
+    synchronized void invalidate(String fileName) {
+        generation++;
+        String directoryPrefix = fileName + root.getFileSystem().getSeparator();
+        Iterator<Asset> cached = assets.values().iterator();
+        while (cached.hasNext()) {
+            Asset asset = cached.next();
+            if (asset.fileName().equals(fileName) || asset.fileName().startsWith(directoryPrefix)) {
+                cached.remove();
+                totalBytes -= asset.bytes();
+            }
+        }
+    }
+
+    synchronized void invalidateAll() {
+        generation++;
+        assets.clear();
+        totalBytes = 0;
+    }
+
+    // Запускает фоновый поток, который сбрасывает кэш изменённых файлов
+    void startWatching() throws IOException {
+        WatchService watchService = FileSystems.getDefault().newWatchService();
+        registerTree(watchService, root);
+
+        Thread watcher = new Thread(() -> watch(watchService), "static-asset-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    private void watch(WatchService watchService) {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                Path directory = (Path) key.watchable();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        // часть событий потеряна - безопаснее сбросить весь кэш
+                        invalidateAll();
+                        continue;
+                    }
+                    Path changed = directory.resolve((Path) event.context());
+                    invalidate(root.relativize(changed).toString());
+                    if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(changed)) {
+                        // новая поддиректория: следим и за ней
+                        watchNewDirectory(watchService, changed);
+                    }
+                }
+                if (!key.reset()) {
+                    // директория удалена или недоступна - её файлы больше не кэшируются
+                    watched.remove(directory);
+                    if (directory.equals(root)) {
+                        invalidateAll();
+                    } else {
+                        invalidate(root.relativize(directory).toString());
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            // наблюдение остановлено
+        } finally {
+            watched.clear();
+            invalidateAll();
+        }
+    }
+
+    private void watchNewDirectory(WatchService watchService, Path directory) {
+        try {
+            registerTree(watchService, directory);
+        } catch (IOException e) {
+            // файлы из директорий, оставшихся без наблюдения, просто не кэшируются
+            System.out.println("Cannot watch " + directory + ": " + e);
+        }
+    }
+
+    private void registerTree(WatchService watchService, Path directory) throws IOException {
+        try (Stream<Path> directories = Files.walk(directory)) {
+            for (Path path : (Iterable<Path>) directories.filter(Files::isDirectory)::iterator) {
+                path.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+                watched.add(path);
+            }
+        }
+    }
+}
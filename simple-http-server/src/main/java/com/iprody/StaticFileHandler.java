@@ -0,0 +1,393 @@
+package com.iprody;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.concurrent.ThreadLocalRandom;
+
+/*
+Формирование ответа на запрос статического файла - общее для режимов nio, virtual и pool.
+Ответ раскладывается на части (ResponsePart), которые вызывающий код пишет в сокет сам:
+event loop - неблокирующе, по мере готовности канала, потоки соединений - целиком.
+
+Условные запросы (conditional GET):
+- у каждой версии файла есть сильный ETag из размера и времени изменения, и Last-Modified;
+- если клиент прислал If-None-Match с тем же ETag (или If-Modified-Since не раньше времени изменения),
+  отвечаем 304 Not Modified без тела - браузер и CDN берут файл из своего кэша;
+- Cache-Control разрешает клиентам хранить ответ http.cache.max-age-seconds секунд без перепроверки.
+
+Частичные ответы (Range):
+- на "Range: bytes=..." отвечаем 206 Partial Content только с запрошенными байтами: докачка и перемотка
+  медиа не гоняют весь файл заново. Каждый диапазон - отдельная часть ответа: срез буфера из кэша
+  или FileRegion с позиционированным transferTo;
+- несколько диапазонов отдаются как multipart/byteranges, недостижимые - ответом 416;
+- If-Range: если файл изменился с тех пор, как клиент получил начало, отдаём файл целиком (200);
+- диапазоны считаются от исходного представления, поэтому Range-запросы не сжимаются.
+
+После частей каждого ответа в очередь ставится отметка ServerMetrics.completion: когда запись доходит
+до неё, ответ отправлен целиком, и в метрики попадают статус, объём и задержка. Путь /_metrics
+отдаёт сами метрики.
+ */
+final class StaticFileHandler {
+
+    static final String CACHE_CONTROL = "Cache-Control: public, max-age="
+            + Long.getLong("http.cache.max-age-seconds", 60) + "\r\n";
+    // IMF-fixdate (RFC 9110, 5.6.7): в отличие от RFC_1123_DATE_TIME день месяца всегда из двух цифр
+    private static final DateTimeFormatter HTTP_DATE =
+            DateTimeFormatter.ofPattern("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US).withZone(ZoneOffset.UTC);
+
+    // Больше диапазонов в одном запросе не обслуживаем по частям - отдаём файл целиком
+    private static final int MAX_RANGES = 16;
+    private static final byte[] BAD_REQUEST_BODY = "<h1>400 Bad Request</h1>".getBytes(StandardCharsets.US_ASCII);
+
+    private final StaticAssetCache assets;
+    private final ServerMetrics metrics;
+
+    StaticFileHandler(StaticAssetCache assets, ServerMetrics metrics) {
+        this.assets = assets;
+        this.metrics = metrics;
+    }
+
+    ServerMetrics metrics() {
+        return metrics;
+    }
+
+    /*
+    Промах кэша: ответ потребует обращения к файловой системе - проверки и чтения файла, его атрибутов
+    или открытия FileRegion (файл ещё не в кэше, отсутствует или слишком велик для кэша).
+    Event loop режима nio в этом случае вызывает respond не сам, а в отдельном потоке.
+     */
+    boolean needsFileSystem(HttpRequest request) {
+        return !request.hasBody() && !ServerMetrics.PATH.equals(request.path())
+                && assets.lookup(request.fileName()) == null;
+    }
+
+    void respond(HttpRequest request, boolean keepAlive, Deque<ResponsePart> parts) throws IOException {
+        long started = System.nanoTime();
+        int queued = parts.size();
+
+        int status;
+        String contentType;
+        if (request.hasBody()) {
+            // keepAlive здесь всегда false: HttpRequest.keepAlive() не продлевает соединение после тела
+            parts.add(ResponsePart.of(HttpServer.responseHeaders(
+                    "400 Bad Request", "text/html", BAD_REQUEST_BODY.length, false)));
+            parts.add(ResponsePart.of(BAD_REQUEST_BODY));
+            status = 400;
+            contentType = "text/html";
+        } else if (ServerMetrics.PATH.equals(request.path())) {
+            status = respondMetrics(keepAlive, parts);
+            contentType = ServerMetrics.CONTENT_TYPE;
+        } else {
+            status = respondFile(request, keepAlive, parts);
+            contentType = status == 404 ? "text/html" : HttpServer.contentType(request.fileName());
+        }
+
+        // Объём ответа - сумма частей, добавленных в конец очереди этим вызовом
+        long bytes = 0;
+        Iterator<ResponsePart> added = parts.descendingIterator();
+        for (int i = queued; i < parts.size(); i++) {
+            bytes += added.next().length();
+        }
+        parts.add(metrics.completion(request, started, status, contentType, bytes));
+    }
+
+    private int respondMetrics(boolean keepAlive, Queue<ResponsePart> parts) {
+        byte[] body = metrics.render().getBytes(StandardCharsets.UTF_8);
+        parts.add(ResponsePart.of(HttpServer.responseHeaders("200 OK", ServerMetrics.CONTENT_TYPE, body.length,
+                keepAlive, "Cache-Control: no-store\r\n")));
+        parts.add(ResponsePart.of(body));
+        return 200;
+    }
+
+    // Возвращает код статуса ответа, поставленного в очередь
+    private int respondFile(HttpRequest request, boolean keepAlive, Queue<ResponsePart> parts) throws IOException {
+        String fileName = request.fileName();
+        // "Горячий" файл отдаётся из кэша: заголовки и тело уже в памяти, к диску не обращаемся
+        StaticAssetCache.Asset asset = assets.lookup(fileName);
+        Path filePath = null;
+        if (asset == null) {
+            filePath = HttpServer.resolveStaticFile(fileName);
+            asset = filePath == null ? null : assets.load(filePath);
+        }
+
+        boolean rangeRequest = request.header("range") != null;
+        if (asset != null) {
+            StaticAssetCache.Variant variant = asset.variant(!rangeRequest && request.acceptsEncoding("gzip"));
+            if (notModified(request, variant.etag(), asset.lastModified())) {
+                parts.add(ResponsePart.of(HttpServer.notModifiedHeaders(variant.headerFields(), keepAlive)));
+                return 304;
+            }
+            int partialStatus = rangeRequest ? respondPartial(request, keepAlive, parts, asset.contentType(),
+                    variant.body().capacity(), variant.etag(), asset.lastModified(), variant.headerFields(),
+                    (position, count) -> ResponsePart.of(variant.bodyView()
+                            .limit((int) (position + count))
+                            .position((int) position))) : 0;
+            if (partialStatus != 0) {
+                return partialStatus;
+            }
+            parts.add(ResponsePart.of(variant.headers(keepAlive)));
+            parts.add(ResponsePart.of(variant.bodyView()));
+            return 200;
+        }
+
+        if (filePath == null) {
+            parts.add(ResponsePart.of(HttpServer.responseHeaders(
+                    "404 Not Found", "text/html", HttpServer.NOT_FOUND_BODY.length, keepAlive)));
+            parts.add(ResponsePart.of(HttpServer.NOT_FOUND_BODY));
+            return 404;
+        }
+
+        // Файл слишком большой для кэша: валидаторы считаем по атрибутам файла, а тело отдаём через transferTo
+        BasicFileAttributes attributes = Files.readAttributes(filePath, BasicFileAttributes.class);
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        String etag = etag(attributes.size(), lastModified);
+        String headerFields = validatorHeaders(etag, lastModified);
+        if (notModified(request, etag, lastModified)) {
+            parts.add(ResponsePart.of(HttpServer.notModifiedHeaders(headerFields, keepAlive)));
+            return 304;
+        }
+
+        String contentType = HttpServer.contentType(fileName);
+        Path file = filePath;
+        int partialStatus = rangeRequest ? respondPartial(request, keepAlive, parts, contentType, attributes.size(),
+                etag, lastModified, headerFields, (position, count) -> FileRegion.open(file, position, count)) : 0;
+        if (partialStatus != 0) {
+            return partialStatus;
+        }
+
+        FileRegion body = FileRegion.open(filePath);
+        parts.add(ResponsePart.of(HttpServer.responseHeaders(
+                "200 OK", contentType, body.remaining(), keepAlive, headerFields)));
+        parts.add(body);
+        return 200;
+    }
+
+    // Источник байтов представления: срез буфера из кэша или фрагмент файла на диске
+    private interface BodySource {
+
+        ResponsePart slice(long position, long count) throws IOException;
+    }
+
+    // Диапазон байтов [start, end] включительно, как в заголовке Content-Range
+    record ByteRange(long start, long end) {
+
+        long length() {
+            return end - start + 1;
+        }
+
+        String contentRange(long size) {
+            return "bytes " + start + "-" + end + "/" + size;
+        }
+    }
+
+    /*
+    Ответ на Range-запрос. Возвращает код статуса (206 или 416) или 0, если Range нужно проигнорировать
+    и отдать файл целиком: заголовок некорректен, диапазонов слишком много или If-Range не совпал
+    с текущей версией файла.
+     */
+    private int respondPartial(HttpRequest request, boolean keepAlive, Queue<ResponsePart> parts,
+            String contentType, long size, String etag, long lastModified, String headerFields, BodySource body)
+            throws IOException {
+        if (!rangeStillValid(request.header("if-range"), etag, lastModified)) {
+            return 0;
+        }
+        List<ByteRange> ranges = parseRanges(request.header("range"), size);
+        if (ranges == null || ranges.size() > MAX_RANGES) {
+            return 0;
+        }
+
+        if (ranges.isEmpty()) {
+            parts.add(ResponsePart.of(HttpServer.responseHeaders("416 Range Not Satisfiable", contentType, 0,
+                    keepAlive, "Content-Range: bytes */" + size + "\r\n")));
+            return 416;
+        }
+
+        if (ranges.size() == 1) {
+            ByteRange range = ranges.get(0);
+            parts.add(ResponsePart.of(HttpServer.responseHeaders("206 Partial Content", contentType, range.length(),
+                    keepAlive, headerFields + "Content-Range: " + range.contentRange(size) + "\r\n")));
+            parts.add(body.slice(range.start(), range.length()));
+            return 206;
+        }
+
+        /*
+        multipart/byteranges: перед каждым диапазоном - граница и его собственные заголовки.
+        Длина всего тела известна заранее, поэтому ответ по-прежнему идёт с Content-Length.
+         */
+        String boundary = Long.toHexString(ThreadLocalRandom.current().nextLong());
+        List<byte[]> delimiters = new ArrayList<>(ranges.size());
+        long contentLength = 0;
+        for (ByteRange range : ranges) {
+            byte[] delimiter = ("\r\n--" + boundary + "\r\n" +
+                    "Content-Type: " + contentType + "\r\n" +
+                    "Content-Range: " + range.contentRange(size) + "\r\n" +
+                    "\r\n").getBytes(StandardCharsets.US_ASCII);
+            delimiters.add(delimiter);
+            contentLength += delimiter.length + range.length();
+        }
+        byte[] closeDelimiter = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+        contentLength += closeDelimiter.length;
+
+        parts.add(ResponsePart.of(HttpServer.responseHeaders("206 Partial Content",
+                "multipart/byteranges; boundary=" + boundary, contentLength, keepAlive, headerFields)));
+        for (int i = 0; i < ranges.size(); i++) {
+            ByteRange range = ranges.get(i);
+            parts.add(ResponsePart.of(delimiters.get(i)));
+            parts.add(body.slice(range.start(), range.length()));
+        }
+        parts.add(ResponsePart.of(closeDelimiter));
+        return 206;
+    }
+
+    /*
+    If-Range содержит либо ETag, либо дату. ETag сравнивается строго (слабый W/ никогда не совпадает),
+    дата - на точное совпадение с Last-Modified.
+     */
+    private static boolean rangeStillValid(String ifRange, String etag, long lastModifiedMillis) {
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return ifRange.equals(etag);
+        }
+        try {
+            return ZonedDateTime.parse(ifRange, DateTimeFormatter.RFC_1123_DATE_TIME).toEpochSecond()
+                    == lastModifiedMillis / 1000;
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+
+    /*
+    Разбирает "bytes=0-99, 200-, -500" для файла размером size.
+    Возвращает null, если заголовок некорректен (тогда Range игнорируется), и пустой список,
+    если ни один диапазон не пересекается с файлом (ответ 416). Пересекающиеся и соседние диапазоны
+    объединяются (RFC 9110, 14.2), чтобы одни и те же байты не отправлялись несколько раз.
+     */
+    static List<ByteRange> parseRanges(String header, long size) {
+        if (!header.startsWith("bytes=")) {
+            return null;
+        }
+
+        List<ByteRange> ranges = new ArrayList<>();
+        try {
+            for (String spec : header.substring("bytes=".length()).split(",")) {
+                String range = spec.trim();
+                int dash = range.indexOf('-');
+                if (dash < 0) {
+                    return null;
+                }
+                String first = range.substring(0, dash).trim();
+                String last = range.substring(dash + 1).trim();
+
+                if (first.isEmpty()) {
+                    // суффикс: последние N байт файла
+                    long suffix = Long.parseLong(last);
+                    if (suffix > 0 && size > 0) {
+                        ranges.add(new ByteRange(Math.max(0, size - suffix), size - 1));
+                    }
+                    continue;
+                }
+
+                long start = Long.parseLong(first);
+                long end = last.isEmpty() ? Long.MAX_VALUE : Long.parseLong(last);
+                if (end < start) {
+                    return null;
+                }
+                if (start < size) {
+                    ranges.add(new ByteRange(start, Math.min(end, size - 1)));
+                }
+            }
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        return coalesce(ranges);
+    }
+
+    // Диапазоны остаются в порядке запроса, пока не пересекаются; иначе - по возрастанию начала
+    private static List<ByteRange> coalesce(List<ByteRange> ranges) {
+        if (ranges.size() < 2) {
+            return ranges;
+        }
+        List<ByteRange> sorted = new ArrayList<>(ranges);
+        sorted.sort(Comparator.comparingLong(ByteRange::start));
+        List<ByteRange> merged = new ArrayList<>(sorted.size());
+        ByteRange current = sorted.get(0);
+        for (int i = 1; i < sorted.size(); i++) {
+            ByteRange next = sorted.get(i);
+            if (next.start() <= current.end() + 1) {
+                current = new ByteRange(current.start(), Math.max(current.end(), next.end()));
+            } else {
+                merged.add(current);
+                current = next;
+            }
+        }
+        merged.add(current);
+        return merged.size() == ranges.size() ? ranges : merged;
+    }
+
+    // Сильный ETag версии файла: меняется при любом изменении размера или времени модификации
+    static String etag(long size, long lastModifiedMillis) {
+        return "\"" + Long.toHexString(size) + "-" + Long.toHexString(lastModifiedMillis) + "\"";
+    }
+
+    // ETag, Last-Modified, Cache-Control и Accept-Ranges - заголовки, которые нужны и ответу 200, и ответу 304
+    static String validatorHeaders(String etag, long lastModifiedMillis) {
+        return "ETag: " + etag + "\r\n" +
+                "Last-Modified: " + HTTP_DATE.format(Instant.ofEpochMilli(lastModifiedMillis)) + "\r\n" +
+                CACHE_CONTROL +
+                "Accept-Ranges: bytes\r\n";
+    }
+
+    /*
+    If-None-Match имеет приоритет: если он есть, If-Modified-Since игнорируется (RFC 9110, 13.2.2).
+    Last-Modified передаётся с точностью до секунды, поэтому и сравниваем секунды.
+     */
+    static boolean notModified(HttpRequest request, String etag, long lastModifiedMillis) {
+        String ifNoneMatch = request.header("if-none-match");
+        if (ifNoneMatch != null) {
+            return matchesAny(ifNoneMatch, etag);
+        }
+
+        String ifModifiedSince = request.header("if-modified-since");
+        if (ifModifiedSince == null) {
+            return false;
+        }
+        try {
+            long since = ZonedDateTime.parse(ifModifiedSince, DateTimeFormatter.RFC_1123_DATE_TIME).toEpochSecond();
+            return lastModifiedMillis / 1000 <= since;
+        } catch (DateTimeParseException e) {
+            // некорректная дата - заголовок игнорируется
+            return false;
+        }
+    }
+
+    // Для If-None-Match используется слабое сравнение: префикс W/ не учитывается
+    private static boolean matchesAny(String ifNoneMatch, String etag) {
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,139 @@
+package com.iprody;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/*
+Режим "поток на соединение": accept() по-прежнему выполняется в главном потоке,
+а разбор запроса, чтение файла и запись в сокет - в отдельном потоке из ExecutorService.
+
+- с Executors.newVirtualThreadPerTaskExecutor() каждый клиент получает свой виртуальный поток (Java 21).
+  Блокирующее чтение файла или медленный клиент "паркуют" только этот виртуальный поток,
+  а не поток-носитель, поэтому клиенты больше не выстраиваются в очередь друг за другом;
+- с Executors.newFixedThreadPool(n) используется классический пул платформенных потоков - для сравнения.
+
+Количество одновременно обслуживаемых соединений ограничено семафором: когда лимит исчерпан,
+сервер перестаёт принимать новые соединения (они ждут в backlog ОС), а не создаёт бесконечно много задач.
+ */
+final class ThreadPerConnectionServer {
+
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = Long.getLong("http.shutdown-timeout-seconds", 10);
+    private static final long ACCEPT_ERROR_PAUSE_MILLIS = 10;
+
+    private final int port;
+    private final String name;
+    private final ExecutorService executor;
+    private final Semaphore permits;
+    private final StaticFileHandler handler;
+
+    private volatile boolean running = true;
+
+    ThreadPerConnectionServer(int port, String name, ExecutorService executor, int maxConcurrency,
+            StaticFileHandler handler) {
+        this.port = port;
+        this.name = name;
+        this.executor = executor;
+        this.permits = new Semaphore(maxConcurrency);
+        this.handler = handler;
+    }
+
+    void start() throws IOException {
+        // Сокет открывается через ServerSocketChannel, чтобы у каждого клиентского Socket был канал
+        // и файлы можно было отправлять через FileChannel.transferTo
+        ServerSocketChannel serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(port));
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> shutdown(serverChannel), "http-shutdown"));
+        System.out.println("Server (" + name + ", max " + permits.availablePermits()
+                + " connections) started at http://localhost:" + port);
+
+        while (running) {
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+
+            SocketChannel clientChannel = null;
+            try {
+                clientChannel = serverChannel.accept();
+                Socket clientSocket = clientChannel.socket();
+                executor.execute(() -> serve(clientSocket));
+            } catch (ClosedChannelException e) {
+                // Сокет закрыт при остановке сервера
+                permits.release();
+                return;
+            } catch (IOException | RuntimeException e) {
+                // Ошибка одного accept (EMFILE, ECONNABORTED) или отказ executor'а не останавливает сервер:
+                // место освобождается, принятый сокет закрывается, и сервер продолжает принимать соединения
+                permits.release();
+                closeQuietly(clientChannel);
+                System.out.println("Error while accepting a connection: " + e);
+                pauseAfterAcceptError();
+            }
+        }
+    }
+
+    static void closeQuietly(SocketChannel channel) {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+            // соединение уже закрыто
+        }
+    }
+
+    // При исчерпании файловых дескрипторов accept() падает сразу - короткая пауза не даёт циклу крутиться вхолостую
+    static void pauseAfterAcceptError() {
+        try {
+            Thread.sleep(ACCEPT_ERROR_PAUSE_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void serve(Socket clientSocket) {
+        handler.metrics().connectionOpened();
+        try {
+            HttpServer.handleKeepAliveClient(clientSocket, handler);
+        } catch (IOException | RuntimeException e) {
+            System.out.println("Error while serving " + clientSocket.getRemoteSocketAddress() + ": " + e);
+        } finally {
+            handler.metrics().connectionClosed();
+            permits.release();
+        }
+    }
+
+    /*
+    Graceful shutdown: перестаём принимать новые соединения, даём уже принятым
+    запросам завершиться, и только по истечении таймаута прерываем оставшиеся.
+     */
+    private void shutdown(ServerSocketChannel serverChannel) {
+        running = false;
+        try {
+            serverChannel.close();
+        } catch (IOException ignored) {
+            // сокет уже закрыт
+        }
+
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        System.out.println("Server (" + name + ") stopped");
+    }
+}
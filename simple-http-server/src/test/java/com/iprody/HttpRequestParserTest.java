@@ -0,0 +1,178 @@
+package com.iprody;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HttpRequestParserTest {
+
+    private final HttpRequestParser parser = new HttpRequestParser();
+    private final ByteBuffer buffer = ByteBuffer.allocate(256);
+
+    @Test
+    void parse_CompleteRequest_ReturnsRequestLineAndKnownHeaders() throws IOException {
+        // given
+        write("GET /lorem.html?lang=ru HTTP/1.1\r\n" +
+                "Host: localhost\r\n" +
+                "ACCEPT-Encoding:   gzip, br  \r\n" +
+                "X-Unknown: ignored\r\n" +
+                "\r\n");
+
+        // when
+        HttpRequest request = parser.parse(buffer);
+
+        // then
+        assertNotNull(request);
+        assertSame("GET", request.method());
+        assertSame("HTTP/1.1", request.version());
+        assertEquals("/lorem.html?lang=ru", request.path());
+        assertEquals("lorem.html", request.fileName());
+        assertEquals("localhost", request.header("host"));
+        assertEquals("gzip, br", request.header("accept-encoding"));
+        assertNull(request.header("x-unknown"));
+        assertNull(request.header("range"));
+        assertEquals(0, buffer.position());
+    }
+
+    @Test
+    void parse_RequestSplitAcrossReads_ReturnsRequestOnceHeadIsComplete() throws IOException {
+        // given
+        String request = "GET /cat.png HTTP/1.1\r\nHost: localhost\r\nRange: bytes=0-99\r\n\r\n";
+
+        // when: запрос приходит по несколько байт, в том числе с разрывом между \r и \n
+        HttpRequest parsed = null;
+        for (int i = 0; i < request.length(); i += 3) {
+            assertNull(parsed);
+            write(request.substring(i, Math.min(i + 3, request.length())));
+            parsed = parser.parse(buffer);
+        }
+
+        // then
+        assertNotNull(parsed);
+        assertEquals("/cat.png", parsed.path());
+        assertEquals("bytes=0-99", parsed.header("range"));
+    }
+
+    @Test
+    void parse_PipelinedRequests_ReturnsThemOneByOne() throws IOException {
+        // given
+        write("GET /a.html HTTP/1.1\r\nHost: a\r\n\r\n" +
+                "HEAD /b.html HTTP/1.0\nHost: b\n\n" +
+                "GET /c.html HTTP/1.1\r\nHo");
+
+        // when
+        HttpRequest first = parser.parse(buffer);
+        HttpRequest second = parser.parse(buffer);
+        HttpRequest incomplete = parser.parse(buffer);
+
+        // then
+        assertEquals("/a.html", first.path());
+        assertEquals("a", first.header("host"));
+        assertSame("HEAD", second.method());
+        assertSame("HTTP/1.0", second.version());
+        assertEquals("b", second.header("host"));
+        assertNull(incomplete);
+
+        // when: остаток третьего запроса
+        write("st: c\r\n\r\n");
+        HttpRequest third = parser.parse(buffer);
+
+        // then: заголовки предыдущих запросов не переходят в следующий
+        assertEquals("/c.html", third.path());
+        assertEquals("c", third.header("host"));
+        assertNull(first.header("range"));
+        assertEquals("a", first.header("host"));
+    }
+
+    @Test
+    void parse_PipelinedPostWithBody_IsMarkedToCloseTheConnection() throws IOException {
+        // given: тело POST содержит байты, похожие на следующий запрос
+        write("POST /upload HTTP/1.1\r\nHost: a\r\nContent-Length: 30\r\n\r\n" +
+                "GET /secret.html HTTP/1.1\r\n\r\n" +
+                "GET /a.html HTTP/1.1\r\nHost: a\r\n\r\n");
+
+        // when
+        HttpRequest post = parser.parse(buffer);
+
+        // then: сервер не продолжает соединение после запроса с телом, и тело не разбирается как запрос
+        assertSame("POST", post.method());
+        assertEquals("30", post.header("content-length"));
+        assertTrue(post.hasBody());
+        assertFalse(post.keepAlive());
+    }
+
+    @Test
+    void parse_BodyHeaders_AreDetected() throws IOException {
+        // when + then
+        assertFalse(new HttpRequestParser().parse(bufferOf("POST / HTTP/1.1\r\nContent-Length: 0\r\n\r\n"))
+                .hasBody());
+        assertTrue(new HttpRequestParser().parse(bufferOf("POST / HTTP/1.1\r\nTransfer-Encoding: chunked\r\n\r\n"))
+                .hasBody());
+        assertTrue(new HttpRequestParser().parse(bufferOf("PUT / HTTP/1.1\r\nContent-Length: x\r\n\r\n"))
+                .hasBody());
+        // повторный Content-Length не скрывает первый
+        HttpRequest duplicated = new HttpRequestParser().parse(
+                bufferOf("POST / HTTP/1.1\r\nContent-Length: 5\r\nContent-Length: 0\r\n\r\n"));
+        assertEquals("5, 0", duplicated.header("content-length"));
+        assertTrue(duplicated.hasBody());
+    }
+
+    @Test
+    void parse_HeadLargerThanBuffer_Throws() {
+        // given: буфер заполнен, а пустой строки конца заголовков так и не было
+        write("GET / HTTP/1.1\r\nUser-Agent: " + "x".repeat(buffer.remaining() - 28));
+
+        // when + then
+        assertThrows(IOException.class, () -> parser.parse(buffer));
+    }
+
+    @Test
+    void parse_TooManyHeaders_Throws() {
+        // given
+        ByteBuffer large = ByteBuffer.allocate(16 * 1024);
+        StringBuilder request = new StringBuilder("GET / HTTP/1.1\r\n");
+        for (int i = 0; i <= HttpRequestParser.MAX_HEADERS; i++) {
+            request.append("X-").append(i).append(": 1\r\n");
+        }
+        large.put(request.append("\r\n").toString().getBytes(StandardCharsets.US_ASCII));
+
+        // when + then
+        assertThrows(IOException.class, () -> parser.parse(large));
+    }
+
+    @Test
+    void parse_MalformedRequestLine_Throws() {
+        // when + then
+        assertThrows(IOException.class, () -> new HttpRequestParser().parse(bufferOf("GET /\r\n\r\n")));
+        assertThrows(IOException.class, () -> new HttpRequestParser().parse(bufferOf("GET lorem HTTP/1.1\r\n\r\n")));
+        assertThrows(IOException.class,
+                () -> new HttpRequestParser().parse(bufferOf("GET / HTTP/1.1 extra\r\n\r\n")));
+    }
+
+    @Test
+    void parse_MalformedHeader_Throws() {
+        // when + then
+        assertThrows(IOException.class,
+                () -> new HttpRequestParser().parse(bufferOf("GET / HTTP/1.1\r\nno colon\r\n\r\n")));
+        assertThrows(IOException.class,
+                () -> new HttpRequestParser().parse(bufferOf("GET / HTTP/1.1\r\n: empty name\r\n\r\n")));
+    }
+
+    private void write(String data) {
+        buffer.put(data.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static ByteBuffer bufferOf(String data) {
+        return ByteBuffer.allocate(256).put(data.getBytes(StandardCharsets.US_ASCII));
+    }
+}
@@ -0,0 +1,91 @@
+package com.iprody;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LatencyHistogramTest {
+
+    @Test
+    void index_SmallValues_AreStoredExactly() {
+        // when + then: до 2 * SUB_BUCKETS ширина корзины - одна микросекунда
+        for (long value = 0; value < 32; value++) {
+            int index = LatencyHistogram.index(value);
+            assertEquals(value, LatencyHistogram.lowerBound(index));
+            assertEquals(value, LatencyHistogram.upperBound(index));
+        }
+    }
+
+    @Test
+    void index_ValueFallsWithinItsBucketBounds() {
+        // given: границы степеней двойки и значения между ними, от микросекунд до 2^40
+        for (int exponent = 4; exponent < 40; exponent++) {
+            long power = 1L << exponent;
+            for (long value : new long[] {power - 1, power, power + 1, power + power / 3, 2 * power - 1}) {
+                // when
+                int index = LatencyHistogram.index(value);
+                long lower = LatencyHistogram.lowerBound(index);
+                long upper = LatencyHistogram.upperBound(index);
+
+                // then: значение внутри корзины, а ширина корзины не больше 1/16 её начала
+                assertTrue(lower <= value && value <= upper, value + " not in [" + lower + ", " + upper + "]");
+                assertTrue((upper - lower + 1) * 16 <= lower || upper == lower, "bucket too wide at " + value);
+            }
+        }
+    }
+
+    @Test
+    void bounds_BucketsAreContiguousAndIncreasing() {
+        // when + then
+        for (int index = 0; index < 500; index++) {
+            assertEquals(LatencyHistogram.upperBound(index) + 1, LatencyHistogram.lowerBound(index + 1));
+            assertEquals(index, LatencyHistogram.index(LatencyHistogram.lowerBound(index)));
+            assertEquals(index, LatencyHistogram.index(LatencyHistogram.upperBound(index)));
+        }
+    }
+
+    @Test
+    void percentiles_ReturnUpperBoundOfBucketHoldingTheRank() {
+        // given
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long micros = 1; micros <= 1000; micros++) {
+            histogram.record(micros);
+        }
+
+        // when
+        long[] result = histogram.percentiles(0.5, 0.99, 1.0);
+
+        // then
+        assertEquals(1000, histogram.count());
+        assertEquals(500_500, histogram.sumMicros());
+        assertEquals(LatencyHistogram.upperBound(LatencyHistogram.index(500)), result[0]);
+        assertEquals(LatencyHistogram.upperBound(LatencyHistogram.index(990)), result[1]);
+        assertEquals(LatencyHistogram.upperBound(LatencyHistogram.index(1000)), result[2]);
+        assertTrue(result[0] >= 500 && result[0] < 500 * 1.07);
+        assertTrue(result[1] >= 990 && result[1] < 990 * 1.07);
+    }
+
+    @Test
+    void record_NegativeAndHugeValues_AreClamped() {
+        // given
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        // when
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE / 2);
+
+        // then
+        assertEquals(2, histogram.count());
+        long[] result = histogram.percentiles(0.5, 1.0);
+        assertEquals(0, result[0]);
+        assertTrue(result[1] >= 1L << 40);
+    }
+
+    @Test
+    void percentiles_EmptyHistogram_ReturnsZeros() {
+        // when + then
+        assertArrayEquals(new long[] {0, 0}, new LatencyHistogram().percentiles(0.5, 0.99));
+    }
+}
@@ -0,0 +1,85 @@
+package com.iprody;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+Простой генератор нагрузки для сравнения режимов HttpServer (classic, nio, virtual, pool).
+
+Сначала запускаем сервер в нужном режиме (из корня репозитория), например:
+    java -Dhttp.mode=virtual -cp simple-http-server/target/classes com.iprody.HttpServer
+затем генератор:
+    java -cp simple-http-server/target/test-classes com.iprody.LoadGenerator [host] [port] [path] [clients] [requests]
+
+Каждый клиент - виртуальный поток, который открывает новое соединение на каждый запрос,
+отправляет GET и читает ответ до конца. По окончании выводятся пропускная способность и перцентили задержки.
+Чтобы сравнить режимы, прогоняем один и тот же сценарий против каждого из них.
+ */
+public final class LoadGenerator {
+
+    public static void main(String[] args) throws InterruptedException {
+        String host = args.length > 0 ? args[0] : "localhost";
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : 8080;
+        String path = args.length > 2 ? args[2] : "/cat2.jpg";
+        int clients = args.length > 3 ? Integer.parseInt(args[3]) : 200;
+        int requestsPerClient = args.length > 4 ? Integer.parseInt(args[4]) : 50;
+
+        byte[] request = ("GET " + path + " HTTP/1.1\r\nHost: " + host + "\r\nConnection: close\r\n\r\n")
+                .getBytes(StandardCharsets.US_ASCII);
+        long[] latencies = new long[clients * requestsPerClient];
+        AtomicInteger index = new AtomicInteger();
+        AtomicInteger errors = new AtomicInteger();
+        AtomicLong bytes = new AtomicLong();
+
+        long started = System.nanoTime();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int c = 0; c < clients; c++) {
+                executor.execute(() -> {
+                    byte[] buffer = new byte[16 * 1024];
+                    for (int r = 0; r < requestsPerClient; r++) {
+                        long begin = System.nanoTime();
+                        try (Socket socket = new Socket(host, port)) {
+                            OutputStream out = socket.getOutputStream();
+                            out.write(request);
+                            out.flush();
+                            InputStream in = socket.getInputStream();
+                            int read;
+                            while ((read = in.read(buffer)) != -1) {
+                                bytes.addAndGet(read);
+                            }
+                            latencies[index.getAndIncrement()] = System.nanoTime() - begin;
+                        } catch (IOException e) {
+                            errors.incrementAndGet();
+                        }
+                    }
+                });
+            }
+        }
+        long elapsed = System.nanoTime() - started;
+
+        int completed = index.get();
+        long[] sorted = Arrays.copyOf(latencies, completed);
+        Arrays.sort(sorted);
+        double seconds = elapsed / 1_000_000_000.0;
+
+        System.out.printf("clients=%d, requests=%d, errors=%d, time=%.2fs%n", clients, completed, errors.get(), seconds);
+        System.out.printf("throughput=%.0f req/s, %.1f MB/s%n", completed / seconds, bytes.get() / seconds / 1_048_576);
+        if (completed > 0) {
+            System.out.printf("latency p50=%.2fms p99=%.2fms max=%.2fms%n",
+                    percentile(sorted, 0.50), percentile(sorted, 0.99), sorted[completed - 1] / 1_000_000.0);
+        }
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        int i = (int) Math.min(sorted.length - 1, Math.round(p * (sorted.length - 1)));
+        return sorted[i] / 1_000_000.0;
+    }
+}
@@ -0,0 +1,100 @@
+package com.iprody;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/*
+Микробенчмарк разбора запроса: HttpRequestParser против прежнего разбора через String.split.
+
+Запуск (из корня репозитория, после mvn test-compile):
+    java -cp simple-http-server/target/classes:simple-http-server/target/test-classes com.iprody.RequestParserBenchmark [iterations]
+
+Для каждого варианта после прогрева выводятся время на запрос и количество байт, выделенных в heap
+на один запрос (com.sun.management.ThreadMXBean#getThreadAllocatedBytes текущего потока).
+ */
+public final class RequestParserBenchmark {
+
+    private static final byte[] REQUEST = ("GET /lorem.html?lang=ru HTTP/1.1\r\n" +
+            "Host: localhost:8080\r\n" +
+            "User-Agent: Mozilla/5.0 (X11; Linux x86_64; rv:128.0) Gecko/20100101 Firefox/128.0\r\n" +
+            "Accept: text/html,application/xhtml+xml,application/xml;q=0.9,*/*;q=0.8\r\n" +
+            "Accept-Language: ru-RU,ru;q=0.8,en-US;q=0.5,en;q=0.3\r\n" +
+            "Accept-Encoding: gzip, deflate, br\r\n" +
+            "Connection: keep-alive\r\n" +
+            "Upgrade-Insecure-Requests: 1\r\n" +
+            "If-None-Match: \"1c6-199a41f3e18\"\r\n" +
+            "Cache-Control: max-age=0\r\n" +
+            "\r\n").getBytes(StandardCharsets.US_ASCII);
+
+    // Сюда складываются результаты, чтобы JIT не выбросил разбор как мёртвый код
+    private static long sink;
+
+    public static void main(String[] args) throws Exception {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+
+        for (int round = 0; round < 3; round++) {
+            // первые прогоны - прогрев JIT, в зачёт идёт последний
+            boolean report = round == 2;
+            measure("HttpRequestParser", iterations, report, RequestParserBenchmark::parseIncremental);
+            measure("String.split (old)", iterations, report, RequestParserBenchmark::parseLegacy);
+        }
+        System.out.println("(sink=" + sink + ")");
+    }
+
+    private static void measure(String name, int iterations, boolean report, Runnable parse) {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().threadId();
+
+        long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+        long started = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            parse.run();
+        }
+        long elapsed = System.nanoTime() - started;
+        long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+        if (report) {
+            System.out.printf("%-20s %8.1f ns/request %8.1f bytes/request%n",
+                    name, (double) elapsed / iterations, (double) allocated / iterations);
+        }
+    }
+
+    private static final ByteBuffer BUFFER = ByteBuffer.allocate(HttpServer.MAX_REQUEST_HEAD);
+    private static final HttpRequestParser PARSER = new HttpRequestParser();
+
+    private static void parseIncremental() {
+        try {
+            BUFFER.clear();
+            BUFFER.put(REQUEST);
+            HttpRequest request = PARSER.parse(BUFFER);
+            sink += request.fileName().length() + request.header("accept-encoding").length();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Прежний разбор: весь блок заголовков декодируется в String, режется split'ом и складывается в HashMap
+    private static void parseLegacy() {
+        String head = new String(REQUEST, 0, REQUEST.length - 4, StandardCharsets.ISO_8859_1);
+        String[] lines = head.split("\r\n");
+        String[] requestLine = lines[0].split(" ");
+
+        Map<String, String> headers = new HashMap<>();
+        for (int i = 1; i < lines.length; i++) {
+            int colon = lines[i].indexOf(':');
+            if (colon > 0) {
+                headers.put(lines[i].substring(0, colon).trim().toLowerCase(Locale.ROOT),
+                        lines[i].substring(colon + 1).trim());
+            }
+        }
+        String path = requestLine[1];
+        int query = path.indexOf('?');
+        String fileName = query < 0 ? path.substring(1) : path.substring(1, query);
+        sink += fileName.length() + headers.get("accept-encoding").length();
+    }
+}
@@ -0,0 +1,131 @@
+package com.iprody;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StaticAssetCacheTest {
+
+    private static final long WATCH_TIMEOUT_MS = 10_000;
+
+    @TempDir
+    private Path root;
+
+    @Test
+    void load_WatchedFile_IsCachedUntilItChanges() throws Exception {
+        // given
+        Path file = write(root.resolve("index.html"), "v1");
+        StaticAssetCache cache = new StaticAssetCache(root, 1 << 20, 1 << 20);
+        cache.startWatching();
+
+        // when
+        StaticAssetCache.Asset asset = cache.load(file);
+
+        // then
+        assertSame(asset, cache.lookup("index.html"));
+
+        // when: файл изменён
+        write(file, "v2");
+
+        // then
+        assertTrue(waitUntilEvicted(cache, "index.html"), "changed file is still cached");
+        assertEquals(2, cache.load(file).identity().body().capacity());
+    }
+
+    @Test
+    void load_FileInSubdirectory_IsInvalidatedOnChange() throws Exception {
+        // given
+        Path file = write(Files.createDirectories(root.resolve("css/themes")).resolve("dark.txt"), "body{}");
+        StaticAssetCache cache = new StaticAssetCache(root, 1 << 20, 1 << 20);
+        cache.startWatching();
+        cache.load(file);
+        String fileName = root.relativize(file).toString();
+        assertNotNull(cache.lookup(fileName));
+
+        // when
+        write(file, "body{color:red}");
+
+        // then
+        assertTrue(waitUntilEvicted(cache, fileName), "changed file in a subdirectory is still cached");
+    }
+
+    @Test
+    void load_FileInDirectoryCreatedAfterStart_IsWatchedToo() throws Exception {
+        // given
+        StaticAssetCache cache = new StaticAssetCache(root, 1 << 20, 1 << 20);
+        cache.startWatching();
+        Path directory = Files.createDirectories(root.resolve("late"));
+        Path file = write(directory.resolve("a.txt"), "a");
+        String fileName = root.relativize(file).toString();
+
+        // when: директория регистрируется watcher'ом асинхронно - ждём, пока файл начнёт кэшироваться
+        long deadline = System.currentTimeMillis() + WATCH_TIMEOUT_MS;
+        while (cache.lookup(fileName) == null && System.currentTimeMillis() < deadline) {
+            cache.load(file);
+            Thread.sleep(20);
+        }
+        assertNotNull(cache.lookup(fileName));
+        write(file, "changed");
+
+        // then
+        assertTrue(waitUntilEvicted(cache, fileName), "changed file in a new directory is still cached");
+    }
+
+    @Test
+    void load_WithoutWatcher_ServesButDoesNotCache() throws Exception {
+        // given: без наблюдения изменения файла никто не заметит
+        Path file = write(root.resolve("index.html"), "v1");
+        StaticAssetCache cache = new StaticAssetCache(root, 1 << 20, 1 << 20);
+
+        // when
+        StaticAssetCache.Asset asset = cache.load(file);
+
+        // then
+        assertNotNull(asset);
+        assertNull(cache.lookup("index.html"));
+    }
+
+    @Test
+    void invalidate_Directory_DropsItsFiles() throws Exception {
+        // given
+        Path directory = Files.createDirectories(root.resolve("img"));
+        Path inside = write(directory.resolve("a.txt"), "a");
+        Path sibling = write(root.resolve("img.txt"), "b");
+        StaticAssetCache cache = new StaticAssetCache(root, 1 << 20, 1 << 20);
+        cache.startWatching();
+        cache.load(inside);
+        cache.load(sibling);
+
+        // when
+        cache.invalidate("img");
+
+        // then
+        assertNull(cache.lookup(root.relativize(inside).toString()));
+        assertNotNull(cache.lookup("img.txt"));
+    }
+
+    private static Path write(Path file, String content) throws IOException {
+        return Files.writeString(file, content, StandardCharsets.UTF_8);
+    }
+
+    private static boolean waitUntilEvicted(StaticAssetCache cache, String fileName) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + WATCH_TIMEOUT_MS;
+        while (cache.lookup(fileName) != null) {
+            if (System.currentTimeMillis() > deadline) {
+                return false;
+            }
+            Thread.sleep(20);
+        }
+        return true;
+    }
+}
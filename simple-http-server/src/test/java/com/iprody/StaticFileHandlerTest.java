@@ -0,0 +1,118 @@
+package com.iprody;
+
+import com.iprody.StaticFileHandler.ByteRange;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StaticFileHandlerTest {
+
+    private static final long SIZE = 1000;
+
+    @Test
+    void respond_RequestWithBody_Returns400AndClosesConnection(@TempDir Path root) throws IOException {
+        // given
+        StaticFileHandler handler = new StaticFileHandler(new StaticAssetCache(root, 1024, 1024), new ServerMetrics());
+        HttpRequest post = new HttpRequestParser().parse(ByteBuffer.allocate(256).put(
+                "POST /upload HTTP/1.1\r\nContent-Length: 4\r\n\r\n".getBytes(StandardCharsets.US_ASCII)));
+        Deque<ResponsePart> parts = new ArrayDeque<>();
+
+        // when
+        handler.respond(post, post.keepAlive(), parts);
+
+        // then
+        assertFalse(handler.needsFileSystem(post));
+        String headers = new String(((ResponsePart.BufferPart) parts.peek()).buffer().array(),
+                StandardCharsets.US_ASCII);
+        assertTrue(headers.startsWith("HTTP/1.1 400 Bad Request\r\n"), headers);
+        assertTrue(headers.contains("Connection: close\r\n"), headers);
+    }
+
+    @Test
+    void parseRanges_ClosedRange_ReturnsRangeAsRequested() {
+        // when
+        List<ByteRange> ranges = StaticFileHandler.parseRanges("bytes=0-99", SIZE);
+
+        // then
+        assertEquals(List.of(new ByteRange(0, 99)), ranges);
+        assertEquals(100, ranges.get(0).length());
+        assertEquals("bytes 0-99/1000", ranges.get(0).contentRange(SIZE));
+    }
+
+    @Test
+    void parseRanges_Suffix_ReturnsLastBytes() {
+        // when + then
+        assertEquals(List.of(new ByteRange(500, 999)), StaticFileHandler.parseRanges("bytes=-500", SIZE));
+        // суффикс длиннее файла - весь файл
+        assertEquals(List.of(new ByteRange(0, 999)), StaticFileHandler.parseRanges("bytes=-5000", SIZE));
+    }
+
+    @Test
+    void parseRanges_OpenEnded_ReturnsRangeToEndOfFile() {
+        // when + then
+        assertEquals(List.of(new ByteRange(900, 999)), StaticFileHandler.parseRanges("bytes=900-", SIZE));
+        // конец за пределами файла обрезается
+        assertEquals(List.of(new ByteRange(900, 999)), StaticFileHandler.parseRanges("bytes=900-5000", SIZE));
+    }
+
+    @Test
+    void parseRanges_DisjointRanges_KeepsRequestOrder() {
+        // when
+        List<ByteRange> ranges = StaticFileHandler.parseRanges("bytes=500-599, 0-99", SIZE);
+
+        // then
+        assertEquals(List.of(new ByteRange(500, 599), new ByteRange(0, 99)), ranges);
+    }
+
+    @Test
+    void parseRanges_OverlappingRanges_AreMerged() {
+        // when + then
+        assertEquals(List.of(new ByteRange(0, 199)), StaticFileHandler.parseRanges("bytes=100-199,0-150", SIZE));
+        assertEquals(List.of(new ByteRange(0, 999)), StaticFileHandler.parseRanges("bytes=0-,0-,0-", SIZE));
+        assertEquals(List.of(new ByteRange(800, 999)), StaticFileHandler.parseRanges("bytes=-200,900-", SIZE));
+    }
+
+    @Test
+    void parseRanges_AdjacentRanges_AreMerged() {
+        // when + then
+        assertEquals(List.of(new ByteRange(0, 199), new ByteRange(300, 399)),
+                StaticFileHandler.parseRanges("bytes=0-99,100-199,300-399", SIZE));
+    }
+
+    @Test
+    void parseRanges_Unsatisfiable_ReturnsEmptyList() {
+        // when + then
+        assertTrue(StaticFileHandler.parseRanges("bytes=1000-", SIZE).isEmpty());
+        assertTrue(StaticFileHandler.parseRanges("bytes=2000-3000,1000-1999", SIZE).isEmpty());
+        assertTrue(StaticFileHandler.parseRanges("bytes=-0", SIZE).isEmpty());
+        assertTrue(StaticFileHandler.parseRanges("bytes=-100", 0).isEmpty());
+    }
+
+    @Test
+    void parseRanges_PartlyUnsatisfiable_ReturnsSatisfiableRangesOnly() {
+        // when + then
+        assertEquals(List.of(new ByteRange(0, 9)), StaticFileHandler.parseRanges("bytes=0-9,5000-", SIZE));
+    }
+
+    @Test
+    void parseRanges_Malformed_ReturnsNull() {
+        // when + then
+        assertNull(StaticFileHandler.parseRanges("items=0-99", SIZE));
+        assertNull(StaticFileHandler.parseRanges("bytes=100", SIZE));
+        assertNull(StaticFileHandler.parseRanges("bytes=abc-", SIZE));
+        assertNull(StaticFileHandler.parseRanges("bytes=200-100", SIZE));
+        assertNull(StaticFileHandler.parseRanges("bytes=0-99,-", SIZE));
+    }
+}
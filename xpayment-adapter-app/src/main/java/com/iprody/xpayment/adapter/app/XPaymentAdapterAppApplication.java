@@ -1,9 +1,14 @@
 package com.iprody.xpayment.adapter.app;
 
+import com.iprody.common.async.json.XPaymentAdapterJsonConfig;
+import com.iprody.common.async.kafka.KafkaProducerConfig;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.Import;
 
 @SpringBootApplication
+// Метрики отправки в Kafka и JSON-кодеки сообщений XPayment Adapter из модуля common
+@Import({KafkaProducerConfig.class, XPaymentAdapterJsonConfig.class})
 public class XPaymentAdapterAppApplication {
 
     public static void main(String[] args) {
@@ -0,0 +1,17 @@
+package com.iprody.xpayment.adapter.app.api;
+
+import com.iprody.xpayment.adapter.app.dto.ChargeResponseDto;
+import com.iprody.xpayment.adapter.app.dto.CreateChargeRequestDto;
+
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/*
+Асинхронный вариант XPaymentProviderGateway: вызов не блокирует поток до ответа провайдера,
+а сразу возвращает CompletableFuture. При ошибке future завершается с RestClientException,
+как и синхронные методы XPaymentProviderGateway.
+ */
+public interface XPaymentProviderAsyncGateway {
+    CompletableFuture<ChargeResponseDto> createCharge(CreateChargeRequestDto createChargeRequestDto);
+    CompletableFuture<ChargeResponseDto> retrieveCharge(UUID id);
+}
@@ -0,0 +1,183 @@
+package com.iprody.xpayment.adapter.app.api;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.iprody.xpayment.adapter.app.api.model.ChargeResponse;
+import com.iprody.xpayment.adapter.app.dto.ChargeResponseDto;
+import com.iprody.xpayment.adapter.app.dto.CreateChargeRequestDto;
+import com.iprody.xpayment.adapter.app.mapper.ChargeResponseMapper;
+import com.iprody.xpayment.adapter.app.mapper.CreateChargeRequestMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.stereotype.Service;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+
+/*
+Реализация XPaymentProviderAsyncGateway на java.net.http.HttpClient (бин из XPaymentRestClientConfig).
+
+- Запрос уходит через sendAsync: поток вызывающего освобождается сразу, а ответ разбирается,
+  когда придёт. Соединения к провайдеру переиспользуются пулом HttpClient (keep-alive).
+- Каждый запрос ограничен app.x-payment-api.client.read-timeout-ms; по истечении future завершается ошибкой.
+- Одновременно в работе не больше app.x-payment-api.client.max-connections запросов. Если лимит исчерпан,
+  запрос встаёт в очередь и отправляется, когда завершится один из запросов в работе; вызывающий поток
+  при этом не блокируется. Размер очереди ограничивает сам вызывающий (prefetch слушателя RabbitMQ).
+- Адрес провайдера и заголовки авторизации берутся из сгенерированного ApiClient, а JSON пишется и читается
+  тем же ObjectMapper, что и у RestTemplate синхронного DefaultApi, поэтому оба клиента обращаются
+  к провайдеру одинаково.
+ */
+@Service
+class XPaymentProviderAsyncGatewayImpl implements XPaymentProviderAsyncGateway {
+
+    // Схемы авторизации операций /charges из спецификации x-payment-api (см. DefaultApi)
+    private static final String[] AUTH_NAMES = {"BasicAuth", "X-Pay-Account"};
+
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper;
+    private final CreateChargeRequestMapper requestMapper;
+    private final ChargeResponseMapper responseMapper;
+    private final URI baseUri;
+    private final HttpHeaders authHeaders;
+    private final Duration readTimeout;
+    private final Semaphore permits;
+    private final Queue<Runnable> pending = new ConcurrentLinkedQueue<>();
+
+    @Autowired
+    XPaymentProviderAsyncGatewayImpl(
+        HttpClient xPaymentHttpClient,
+        ApiClient xPaymentApiClient,
+        RestTemplate xPaymentRestTemplate,
+        CreateChargeRequestMapper requestMapper,
+        ChargeResponseMapper responseMapper,
+        @Value("${app.x-payment-api.client.read-timeout-ms:10000}") long readTimeoutMs,
+        @Value("${app.x-payment-api.client.max-connections:200}") int maxConnections
+    ) {
+        this.httpClient = xPaymentHttpClient;
+        this.objectMapper = xPaymentRestTemplate.getMessageConverters().stream()
+            .filter(MappingJackson2HttpMessageConverter.class::isInstance)
+            .map(converter -> ((MappingJackson2HttpMessageConverter) converter).getObjectMapper())
+            .findFirst()
+            .orElseThrow(() -> new IllegalStateException("xPaymentRestTemplate has no Jackson converter"));
+        this.requestMapper = requestMapper;
+        this.responseMapper = responseMapper;
+        final String basePath = xPaymentApiClient.getBasePath();
+        this.baseUri = URI.create(basePath.endsWith("/") ? basePath : basePath + "/");
+        this.authHeaders = new HttpHeaders();
+        for (final String authName : AUTH_NAMES) {
+            xPaymentApiClient.getAuthentication(authName)
+                .applyToParams(new LinkedMultiValueMap<>(), authHeaders, new LinkedMultiValueMap<>());
+        }
+        this.readTimeout = Duration.ofMillis(readTimeoutMs);
+        this.permits = new Semaphore(maxConnections);
+    }
+
+    @Override
+    public CompletableFuture<ChargeResponseDto> createCharge(CreateChargeRequestDto dto) {
+        final byte[] body;
+        try {
+            body = objectMapper.writeValueAsBytes(requestMapper.toEntity(dto));
+        } catch (JsonProcessingException e) {
+            return CompletableFuture.failedFuture(new RestClientException("POST /charges failed", e));
+        }
+
+        final HttpRequest request = request("charges")
+            .header(HttpHeaders.CONTENT_TYPE, "application/json")
+            .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+            .build();
+        return send(request, "POST /charges failed");
+    }
+
+    @Override
+    public CompletableFuture<ChargeResponseDto> retrieveCharge(UUID id) {
+        final HttpRequest request = request("charges/" + id).GET().build();
+        return send(request, "GET /charges/{id} failed (id=" + id + ")");
+    }
+
+    private HttpRequest.Builder request(String path) {
+        final HttpRequest.Builder builder = HttpRequest.newBuilder(baseUri.resolve(path))
+            .timeout(readTimeout)
+            .header(HttpHeaders.ACCEPT, "application/json");
+        authHeaders.forEach((name, values) -> values.forEach(value -> builder.header(name, value)));
+        return builder;
+    }
+
+    private CompletableFuture<ChargeResponseDto> send(HttpRequest request, String errorMessage) {
+        final CompletableFuture<ChargeResponseDto> result = new CompletableFuture<>();
+        pending.add(() -> dispatch(request, errorMessage, result));
+        drain();
+        return result;
+    }
+
+    // Отправляет запросы из очереди, пока есть свободные места
+    private void drain() {
+        while (!pending.isEmpty() && permits.tryAcquire()) {
+            final Runnable next = pending.poll();
+            if (next == null) {
+                permits.release();
+            } else {
+                next.run();
+            }
+        }
+    }
+
+    // Место освобождается после ответа, и следующий запрос из очереди уходит сразу
+    private void release() {
+        permits.release();
+        drain();
+    }
+
+    private void dispatch(HttpRequest request, String errorMessage, CompletableFuture<ChargeResponseDto> result) {
+        final CompletableFuture<HttpResponse<byte[]>> response;
+        try {
+            response = httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray());
+        } catch (RuntimeException e) {
+            result.completeExceptionally(new RestClientException(errorMessage, e));
+            release();
+            return;
+        }
+
+        response.whenComplete((httpResponse, error) -> {
+            // Место освобождается до разбора ответа и зависимых от result этапов
+            release();
+            if (error != null) {
+                final Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+                result.completeExceptionally(new RestClientException(errorMessage, cause));
+                return;
+            }
+            try {
+                result.complete(toDto(httpResponse, errorMessage));
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+        });
+    }
+
+    private ChargeResponseDto toDto(HttpResponse<byte[]> response, String errorMessage) {
+        if (response.statusCode() / 100 != 2) {
+            throw new RestClientException(errorMessage + ": HTTP " + response.statusCode() + " "
+                + new String(response.body(), StandardCharsets.UTF_8));
+        }
+        try {
+            return responseMapper.toDto(objectMapper.readValue(response.body(), ChargeResponse.class));
+        } catch (IOException e) {
+            throw new RestClientException(errorMessage, e);
+        }
+    }
+}
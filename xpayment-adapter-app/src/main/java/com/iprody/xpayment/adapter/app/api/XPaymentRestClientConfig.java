@@ -1,49 +1,127 @@
 package com.iprody.xpayment.adapter.app.api;
 
 import com.iprody.xpayment.adapter.app.api.client.DefaultApi;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import jakarta.annotation.PreDestroy;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 @Configuration
 class XPaymentRestClientConfig {
 
     /*
-    Бин типа данных RestTemplate, который включает в себя
-    следующие HTTP-заголовки на основе ранее описанной конфигурации
-    для веб-клиента x-payment-api:
-    - Authorization: Basic <username:password in Base64>
-    - X-Pay-Account: <account>
+    Виртуальные потоки, в которых HttpClient обрабатывает ответы. Закрывается при остановке контекста -
+    после HttpClient, который создан этой конфигурацией и уничтожается раньше неё.
+    Отдельным бином не объявлен: бин типа Executor отключил бы applicationTaskExecutor Spring Boot.
+     */
+    private final ExecutorService httpClientExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    /*
+    Пул HTTP-соединений (Apache HttpClient 5) для RestTemplate клиента x-payment-api:
+    - не больше app.x-payment-api.client.max-total-connections соединений всего
+      и app.x-payment-api.client.max-connections-per-route к одному хосту;
+    - таймауты установления соединения (connect-timeout-ms) и ожидания ответа (read-timeout-ms),
+      чтобы медленный провайдер не занимал поток слушателя бесконечно;
+    - соединение, простоявшее дольше validate-after-inactivity-ms, перед запросом проверяется,
+      не закрыл ли его провайдер;
+    - состояние пула (занятые, свободные и ожидающие соединения) публикуется в actuator
+      как httpcomponents.httpclient.pool.* с тегом httpclient=x-payment-api.
      */
     @Bean
-    RestTemplate xPaymentRestTemplate(
-        @Value("${app.x-payment-api.client.username}") String username,
-        @Value("${app.x-payment-api.client.password}") String password,
-        @Value("${app.x-payment-api.client.account}") String xPayAccount
+    PoolingHttpClientConnectionManager xPaymentConnectionManager(
+        @Value("${app.x-payment-api.client.max-total-connections:200}") int maxTotal,
+        @Value("${app.x-payment-api.client.max-connections-per-route:200}") int maxPerRoute,
+        @Value("${app.x-payment-api.client.connect-timeout-ms:2000}") long connectTimeoutMs,
+        @Value("${app.x-payment-api.client.read-timeout-ms:10000}") long readTimeoutMs,
+        @Value("${app.x-payment-api.client.validate-after-inactivity-ms:2000}") long validateAfterInactivityMs,
+        MeterRegistry meterRegistry
     ) {
-        final RestTemplate rt = new RestTemplate();
-        rt.getInterceptors().add((req, body, ex) -> {
-            req.getHeaders().setBasicAuth(username, password);
-            req.getHeaders().add("X-Pay-Account", xPayAccount);
-            return ex.execute(req, body);
-        });
-        return rt;
+        final ConnectionConfig connectionConfig = ConnectionConfig.custom()
+            .setConnectTimeout(Timeout.ofMilliseconds(connectTimeoutMs))
+            .setSocketTimeout(Timeout.ofMilliseconds(readTimeoutMs))
+            .setValidateAfterInactivity(TimeValue.ofMilliseconds(validateAfterInactivityMs))
+            .build();
+        final PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+            .setMaxConnTotal(maxTotal)
+            .setMaxConnPerRoute(maxPerRoute)
+            .setDefaultConnectionConfig(connectionConfig)
+            .build();
+        new PoolingHttpClientConnectionManagerMetricsBinder(connectionManager, "x-payment-api").bindTo(meterRegistry);
+        return connectionManager;
+    }
+
+    /*
+    HTTP-клиент поверх пула: простаивающие дольше app.x-payment-api.client.keep-alive-seconds
+    соединения закрываются фоновым потоком клиента, а не при следующем запросе.
+     */
+    @Bean
+    CloseableHttpClient xPaymentPooledHttpClient(
+        PoolingHttpClientConnectionManager xPaymentConnectionManager,
+        @Value("${app.x-payment-api.client.read-timeout-ms:10000}") long readTimeoutMs,
+        @Value("${app.x-payment-api.client.connection-request-timeout-ms:1000}") long connectionRequestTimeoutMs,
+        @Value("${app.x-payment-api.client.keep-alive-seconds:30}") long keepAliveSeconds
+    ) {
+        final RequestConfig requestConfig = RequestConfig.custom()
+            .setConnectionRequestTimeout(Timeout.ofMilliseconds(connectionRequestTimeoutMs))
+            .setResponseTimeout(Timeout.ofMilliseconds(readTimeoutMs))
+            .build();
+        return HttpClients.custom()
+            .setConnectionManager(xPaymentConnectionManager)
+            .setDefaultRequestConfig(requestConfig)
+            .setKeepAliveStrategy((response, context) -> TimeValue.ofSeconds(keepAliveSeconds))
+            .evictExpiredConnections()
+            .evictIdleConnections(TimeValue.ofSeconds(keepAliveSeconds))
+            .build();
+    }
+
+    /*
+    Бин типа данных RestTemplate, который отправляет запросы через пул соединений
+    xPaymentPooledHttpClient. Заголовки авторизации добавляет ApiClient (см. xPaymentApiClient)
+     */
+    @Bean
+    RestTemplate xPaymentRestTemplate(CloseableHttpClient xPaymentPooledHttpClient) {
+        return new RestTemplate(new HttpComponentsClientHttpRequestFactory(xPaymentPooledHttpClient));
     }
 
     /*
     Бин типа данных ApiClient, который создаётся на основе ранее
     созданного bean типа данных RestTemplate и устанавливает свойство
     base-path на основе ранее описанной конфигурации для веб-клиента
-    app.x-payment-api.client.url
+    app.x-payment-api.client.url, а также учётные данные, из которых сгенерированный клиент
+    строит HTTP-заголовки для синхронного DefaultApi и асинхронного XPaymentProviderAsyncGateway:
+    - Authorization: Basic <username:password in Base64>
+    - X-Pay-Account: <account>
      */
     @Bean
     ApiClient xPaymentApiClient(
         @Value("${app.x-payment-api.client.url}") String xPaymentUrl,
+        @Value("${app.x-payment-api.client.username}") String username,
+        @Value("${app.x-payment-api.client.password}") String password,
+        @Value("${app.x-payment-api.client.account}") String xPayAccount,
         RestTemplate xPaymentRestTemplate
     ) {
         final ApiClient apiClient = new ApiClient(xPaymentRestTemplate);
         apiClient.setBasePath(xPaymentUrl);
+        apiClient.setUsername(username);
+        apiClient.setPassword(password);
+        apiClient.setApiKey(xPayAccount);
         return apiClient;
     }
 
@@ -51,4 +129,31 @@ class XPaymentRestClientConfig {
     DefaultApi defaultApi(ApiClient apiClient) {
         return new DefaultApi(apiClient);
     }
-}
\ No newline at end of file
+
+    /*
+    Бин HttpClient из JDK для асинхронного XPaymentProviderAsyncGateway:
+    - HTTP/1.1: провайдер доступен по http://, и HTTP/2 здесь означал бы попытку h2c upgrade
+      на каждом новом соединении;
+    - таймаут установления соединения app.x-payment-api.client.connect-timeout-ms;
+    - соединения хранятся в пуле HttpClient и переиспользуются. Время жизни простаивающего соединения
+      JDK читает только из системного свойства jdk.httpclient.keepalive.timeout (по умолчанию 30 с),
+      поэтому при необходимости оно задаётся опцией JVM при запуске;
+    - ответы обрабатываются в виртуальных потоках, а не в общем пуле платформенных;
+    - при остановке контекста HttpClient закрывается (close ждёт завершения начатых запросов).
+     */
+    @Bean(destroyMethod = "close")
+    HttpClient xPaymentHttpClient(
+        @Value("${app.x-payment-api.client.connect-timeout-ms:2000}") long connectTimeoutMs
+    ) {
+        return HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+            .executor(httpClientExecutor)
+            .build();
+    }
+
+    @PreDestroy
+    void closeHttpClientExecutor() {
+        httpClientExecutor.close();
+    }
+}
@@ -1,10 +1,13 @@
 package com.iprody.xpayment.adapter.app.async.kafka;
 
 import com.iprody.common.async.AsyncListener;
+import com.iprody.common.async.DeduplicatingMessageHandler;
 import com.iprody.common.async.MessageHandler;
 import com.iprody.common.async.XPaymentAdapterRequestMessage;
 import com.iprody.xpayment.adapter.app.validation.ValidationException;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Qualifier;
@@ -12,10 +15,16 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.annotation.DltHandler;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.kafka.annotation.RetryableTopic;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
 import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.stereotype.Component;
 import org.springframework.validation.Validator;
 
+import java.time.Duration;
+
 @Component
 public class KafkaXPaymentAdapterRequestListenerAdapter implements AsyncListener<XPaymentAdapterRequestMessage> {
 
@@ -23,13 +32,34 @@ public class KafkaXPaymentAdapterRequestListenerAdapter implements AsyncListener
 
     private final Validator validator;
     private final MessageHandler<XPaymentAdapterRequestMessage> handler;
+    private final KeyOrderedExecutor executor;
+    private final DeadLetterPublishingRecoverer deadLetterRecoverer;
+
+    /*
+    Обработчик обёрнут в DeduplicatingMessageHandler: повторная доставка запроса (после ребалансировки
+    или перезапуска) не приводит ко второму вызову провайдера. У платежа один запрос, поэтому ключ -
+    только paymentGuid.
 
+    Запись, обработка которой в KeyOrderedExecutor завершилась непредвиденной ошибкой, публикуется в тот же
+    DLT, что и записи @RetryableTopic (<topic>-dlt), и только потом подтверждается. Партицию DLT выбирает
+    producer по ключу записи, поэтому число партиций DLT может отличаться от основного топика.
+     */
     public KafkaXPaymentAdapterRequestListenerAdapter(
         @Qualifier("XPaymentAdapterRequestMessageValidator") Validator validator,
-        MessageHandler<XPaymentAdapterRequestMessage> handler
+        MessageHandler<XPaymentAdapterRequestMessage> handler,
+        KeyOrderedExecutor executor,
+        KafkaTemplate<String, XPaymentAdapterRequestMessage> template,
+        @Value("${app.kafka.topics.xpayment-adapter.request:xpayment-adapter.requests}") String topic,
+        MeterRegistry meterRegistry,
+        @Value("${app.kafka.consumer.deduplication.window-size:50000}") int windowSize,
+        @Value("${app.kafka.consumer.deduplication.horizon-minutes:60}") long horizonMinutes
     ) {
         this.validator = validator;
-        this.handler = handler;
+        this.handler = new DeduplicatingMessageHandler<>("xpayment-adapter-requests", handler,
+            message -> null, windowSize, Duration.ofMinutes(horizonMinutes), meterRegistry);
+        this.executor = executor;
+        this.deadLetterRecoverer = new DeadLetterPublishingRecoverer(template,
+            (record, e) -> new TopicPartition(topic + "-dlt", -1));
     }
 
     @Override
@@ -37,6 +67,17 @@ public class KafkaXPaymentAdapterRequestListenerAdapter implements AsyncListener
         handler.handle(message);
     }
 
+    /*
+    Параллельная обработка внутри партиции: запись проверяется в потоке consumer'а, а вызов провайдера
+    уходит в KeyOrderedExecutor. Запросы по одному платежу (paymentGuid) выполняются по порядку,
+    по разным платежам - параллельно, поэтому пропускная способность определяется задержкой провайдера
+    и max-in-flight, а не числом партиций.
+
+    Каждая запись подтверждается после своей обработки, т.е. не по порядку. С
+    spring.kafka.listener.async-acks контейнер коммитит offset только до последней записи, перед которой
+    нет неподтверждённых, и не выдаёт следующую пачку, пока не подтверждена текущая. После падения
+    повторно придут только записи, чья обработка не была подтверждена.
+     */
     @RetryableTopic(attempts = "${app.kafka.consumer.retry}")
     @KafkaListener(topics = "${app.kafka.topics.xpayment-adapter.request}",
         groupId = "${spring.kafka.consumer.group-id}")
@@ -44,23 +85,41 @@ public class KafkaXPaymentAdapterRequestListenerAdapter implements AsyncListener
         XPaymentAdapterRequestMessage message,
         ConsumerRecord<String, XPaymentAdapterRequestMessage> record,
         Acknowledgment ack
-    ) {
+    ) throws InterruptedException {
+        log.info("Received XPayment Adapter request: paymentGuid={}, partition={}, offset={}",
+            message.getPaymentGuid(), record.partition(), record.offset());
+        // Некорректное сообщение - исключение в потоке consumer'а, и оно уходит в DLT, как и раньше
+        validator.validateObject(message)
+            .failOnError(msg -> new ValidationException("Validation exception"));
+
+        executor.execute(message.getPaymentGuid(), () -> {
+            try {
+                onMessage(message);
+            } catch (Exception e) {
+                // Ошибки провайдера handler сам превращает в ответ CANCELED; сюда попадают только
+                // непредвиденные. Запись уходит в DLT и подтверждается, чтобы не остановить коммит offset'ов
+                log.error("Error handling XPayment Adapter request for paymentGuid={}, partition={}, offset={}",
+                    message.getPaymentGuid(), record.partition(), record.offset(), e);
+                publishToDlt(record, e);
+            } finally {
+                ack.acknowledge();
+            }
+        });
+    }
+
+    private void publishToDlt(ConsumerRecord<String, XPaymentAdapterRequestMessage> record, Exception e) {
         try {
-            log.info("Received XPayment Adapter request: paymentGuid={}, partition={}, offset={}",
-                message.getPaymentGuid(), record.partition(), record.offset());
-            validator.validateObject(message)
-                .failOnError(msg -> new ValidationException("Validation exception"));
-            onMessage(message);
-            ack.acknowledge();
-        } catch (Exception e) {
-            log.error("Error handling XPayment Adapter request for paymentGuid={}", message.getPaymentGuid(), e);
-            throw e;
+            // Ждёт подтверждения брокера, поэтому запись подтверждается только после попадания в DLT
+            deadLetterRecoverer.accept(record, e);
+        } catch (RuntimeException dltError) {
+            log.error("XPayment Adapter request for paymentGuid={} is not published to DLT, partition={}, offset={}",
+                record.value().getPaymentGuid(), record.partition(), record.offset(), dltError);
         }
     }
 
     @DltHandler
     public void handleDltPayment(XPaymentAdapterRequestMessage message,
-        @Value("${app.kafka.topics.xpayment-adapter.request:xpayment-adapter.requests}") String topic
+        @Header(KafkaHeaders.RECEIVED_TOPIC) String topic
     ) {
         log.info("Event on dlt topic={}, payload={}", topic, message);
     }
@@ -2,6 +2,7 @@ package com.iprody.xpayment.adapter.app.async.kafka;
 
 import com.iprody.common.async.AsyncSender;
 import com.iprody.common.async.XPaymentAdapterResponseMessage;
+import com.iprody.common.async.kafka.KafkaSendMetrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
@@ -15,20 +16,33 @@ public class KafkaXPaymentAdapterResponseSender implements AsyncSender<XPaymentA
 
     private final KafkaTemplate<String, XPaymentAdapterResponseMessage> template;
 
+    private final KafkaSendMetrics sendMetrics;
+
     private final String topic;
 
     public KafkaXPaymentAdapterResponseSender(KafkaTemplate<String, XPaymentAdapterResponseMessage> template,
+        KafkaSendMetrics sendMetrics,
         @Value("${app.kafka.topics.xpayment-adapter.response:xpayment-adapter.responses}") String topic
     ) {
         this.template = template;
+        this.sendMetrics = sendMetrics;
         this.topic = topic;
     }
 
+    /*
+    Отправка не ждёт подтверждения брокера: producer копит ответы в пачки (linger.ms),
+    а результат каждой отправки фиксируется в метриках kafka.producer.send и в логе при ошибке.
+     */
     @Override
     public void send(XPaymentAdapterResponseMessage msg) {
         final String key = msg.getPaymentGuid().toString(); // фиксируем партиционирование по платежу
         log.info("Sending XPayment Adapter response: guid={}, amount={}, currency={} -> topic={}",
             msg.getPaymentGuid(), msg.getAmount(), msg.getCurrency(), topic);
-        template.send(topic, key, msg);
+        sendMetrics.send(template, topic, key, msg).whenComplete((result, error) -> {
+            if (error != null) {
+                log.error("XPayment Adapter response for payment {} is not sent -> topic={}",
+                    msg.getPaymentGuid(), topic, error);
+            }
+        });
     }
 }
@@ -0,0 +1,65 @@
+package com.iprody.xpayment.adapter.app.async.kafka;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/*
+Исполнитель задач с порядком по ключу (модель parallel consumer):
+- задачи с одним ключом выполняются строго друг за другом в порядке поступления;
+- задачи с разными ключами выполняются параллельно, каждая в своём виртуальном потоке,
+  поэтому блокирующий HTTP-вызов к провайдеру не занимает поток-носитель;
+- число задач в работе (включая ожидающие предыдущую задачу своего ключа) ограничено
+  app.kafka.consumer.max-in-flight: при исчерпании лимита execute блокирует поток consumer'а,
+  и новые записи из Kafka не забираются, пока не освободится место.
+Задача не должна завершаться исключением - иначе цепочка её ключа прервётся, поэтому ошибки
+обрабатывает сама задача.
+ */
+@Component
+class KeyOrderedExecutor implements AutoCloseable {
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Map<Object, CompletableFuture<Void>> tails = new ConcurrentHashMap<>();
+    private final Semaphore permits;
+
+    KeyOrderedExecutor(@Value("${app.kafka.consumer.max-in-flight:200}") int maxInFlight) {
+        this.permits = new Semaphore(maxInFlight);
+    }
+
+    void execute(Object key, Runnable task) throws InterruptedException {
+        permits.acquire();
+        final CompletableFuture<Void> tail;
+        try {
+            // Новая задача становится хвостом цепочки своего ключа и стартует после завершения предыдущей
+            tail = tails.compute(key, (k, previous) -> previous == null
+                ? CompletableFuture.runAsync(task, executor)
+                : previous.exceptionally(e -> null).thenRunAsync(task, executor));
+        } catch (RuntimeException e) {
+            // Задача не поставлена (например, RejectedExecutionException после close) - место освобождается
+            permits.release();
+            throw e;
+        }
+        tail.whenComplete((result, error) -> {
+            // Ключ без задач в работе больше не занимает память
+            tails.remove(key, tail);
+            permits.release();
+        });
+    }
+
+    // Свободные места для задач; нужно тестам
+    int availablePermits() {
+        return permits.availablePermits();
+    }
+
+    // Останавливает приём задач и дожидается завершения уже запущенных
+    @Override
+    public void close() {
+        executor.close();
+    }
+}
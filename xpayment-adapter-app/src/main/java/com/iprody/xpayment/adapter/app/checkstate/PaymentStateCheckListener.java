@@ -12,6 +12,9 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.RestClientException;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
 /*
 Основной задачей класса является прослушка входящих сообщений из основной очереди RabbitMQ
 с последующей операцией уточнения статуса платежа (информация о котором содержится в полученном сообщении)
@@ -52,46 +55,62 @@ public class PaymentStateCheckListener {
         this.paymentStatusCheckHandler = paymentStatusCheckHandler;
     }
 
+    /*
+    Проверка статуса асинхронная: метод возвращает future сразу после отправки запроса провайдеру,
+    и Spring AMQP подтверждает сообщение (acknowledge-mode: manual), только когда future завершится.
+    Поэтому один consumer держит в работе до spring.rabbitmq.listener.simple.prefetch проверок,
+    а не одну. Если future завершится непредвиденной ошибкой, сообщение вернётся в очередь (nack).
+     */
     @RabbitListener(queues = "${app.rabbitmq.queue-name}")
-    public void handle(PaymentCheckStateMessage message, Message raw) {
+    public CompletableFuture<Void> handle(PaymentCheckStateMessage message, Message raw) {
         final MessageProperties props = raw.getMessageProperties();
         final int retryCount = (int) props.getHeaders().getOrDefault("x-retry-count", 1);
 
-        try {
-            logger.info("Retry №{} checking status for payment {} amount {} {}",
-                retryCount, message.getPaymentGuid(), message.getAmount(), message.getCurrency());
+        logger.info("Retry №{} checking status for payment {} amount {} {}",
+            retryCount, message.getPaymentGuid(), message.getAmount(), message.getCurrency());
 
-            final boolean paid = paymentStatusCheckHandler.handle(message.getChargeGuid());
+        return paymentStatusCheckHandler.handleAsync(message.getChargeGuid())
+            .handle((paid, ex) -> {
+                if (ex == null) {
+                    onChecked(message, paid, retryCount, props.getConsumerQueue());
+                    return null;
+                }
+                final Throwable cause = ex instanceof CompletionException ? ex.getCause() : ex;
+                if (cause instanceof RestClientException) {
+                    sendToDlx(message, retryCount, props.getConsumerQueue(), "ERROR");
+                    return null;
+                }
+                throw ex instanceof CompletionException completion ? completion : new CompletionException(ex);
+            });
+    }
 
-            if (paid) {
-                return;
-            }
+    private void onChecked(PaymentCheckStateMessage message, boolean paid, int retryCount, String queue) {
+        if (paid) {
+            return;
+        }
 
-            if (retryCount < maxRetries) {
-                // Планируем следующую проверку
-                final PaymentCheckStateMessage newMessage = new PaymentCheckStateMessage(
-                    message.getChargeGuid(),
-                    message.getPaymentGuid(),
-                    message.getAmount(),
-                    message.getCurrency()
-                );
+        if (retryCount < maxRetries) {
+            // Планируем следующую проверку
+            final PaymentCheckStateMessage newMessage = new PaymentCheckStateMessage(
+                message.getChargeGuid(),
+                message.getPaymentGuid(),
+                message.getAmount(),
+                message.getCurrency()
+            );
 
-                rabbitTemplate.convertAndSend(
-                    exchangeName,
-                    routingKey,
-                    newMessage,
-                    m -> {
-                        m.getMessageProperties().setHeader("x-delay", intervalMs);
-                        m.getMessageProperties().setHeader("x-retry-count", retryCount + 1);
-                        return m;
-                    }
-                );
-            } else {
-                // Исчерпали попытки -- кладём сообщение в DLX
-                sendToDlx(message, retryCount, props.getConsumerQueue(), "TIMEOUT");
-            }
-        } catch (RestClientException ex) {
-            sendToDlx(message, retryCount, props.getConsumerQueue(), "ERROR");
+            rabbitTemplate.convertAndSend(
+                exchangeName,
+                routingKey,
+                newMessage,
+                m -> {
+                    m.getMessageProperties().setHeader("x-delay", intervalMs);
+                    m.getMessageProperties().setHeader("x-retry-count", retryCount + 1);
+                    return m;
+                }
+            );
+        } else {
+            // Исчерпали попытки -- кладём сообщение в DLX
+            sendToDlx(message, retryCount, queue, "TIMEOUT");
         }
     }
 
@@ -3,6 +3,7 @@ package com.iprody.xpayment.adapter.app.checkstate.handler;
 import org.springframework.web.client.RestClientException;
 
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 public interface PaymentStatusCheckHandler {
 
@@ -16,4 +17,13 @@ public interface PaymentStatusCheckHandler {
      * @return true, если платеж завершен и новые проверки статуса не требуются, иначе false
      */
     boolean handle(UUID chargeGuid) throws RestClientException;
+
+    /**
+     * Асинхронный вариант {@link #handle(UUID)}: не ждёт ответа X Payment Provider.
+     *
+     * @param chargeGuid UUID платежа для проверки
+     * @return future с тем же результатом, что и у handle; при ошибке провайдера
+     завершается с RestClientException
+     */
+    CompletableFuture<Boolean> handleAsync(UUID chargeGuid);
 }
\ No newline at end of file
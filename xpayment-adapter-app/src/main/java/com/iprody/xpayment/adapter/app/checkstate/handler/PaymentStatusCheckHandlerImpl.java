@@ -3,8 +3,7 @@ package com.iprody.xpayment.adapter.app.checkstate.handler;
 import com.iprody.common.async.AsyncSender;
 import com.iprody.common.async.XPaymentAdapterResponseMessage;
 import com.iprody.common.async.XPaymentAdapterStatus;
-import com.iprody.xpayment.adapter.app.api.XPaymentProviderGateway;
-import com.iprody.xpayment.adapter.app.dto.ChargeResponseDto;
+import com.iprody.xpayment.adapter.app.api.XPaymentProviderAsyncGateway;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -13,18 +12,20 @@ import org.springframework.web.client.RestClientException;
 
 import java.time.OffsetDateTime;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @Component
 public class PaymentStatusCheckHandlerImpl implements PaymentStatusCheckHandler {
 
     private static final Logger logger = LoggerFactory.getLogger(PaymentStatusCheckHandlerImpl.class);
 
-    private final XPaymentProviderGateway xPaymentProviderGateway;
+    private final XPaymentProviderAsyncGateway xPaymentProviderGateway;
     private final AsyncSender<XPaymentAdapterResponseMessage> asyncSender;
 
     @Autowired
     public PaymentStatusCheckHandlerImpl(
-        XPaymentProviderGateway xPaymentProviderGateway,
+        XPaymentProviderAsyncGateway xPaymentProviderGateway,
         AsyncSender<XPaymentAdapterResponseMessage> asyncSender
     ) {
         this.xPaymentProviderGateway = xPaymentProviderGateway;
@@ -33,31 +34,45 @@ public class PaymentStatusCheckHandlerImpl implements PaymentStatusCheckHandler
 
     @Override
     public boolean handle(UUID chargeGuid) throws RestClientException {
+        try {
+            return handleAsync(chargeGuid).join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RestClientException cause) {
+                throw cause;
+            }
+            throw ex;
+        }
+    }
+
+    @Override
+    public CompletableFuture<Boolean> handleAsync(UUID chargeGuid) {
         logger.info("Sending request to check charge status(guid = {}) ", chargeGuid);
 
-        try {
-            final ChargeResponseDto chargeResponseDto = xPaymentProviderGateway.retrieveCharge(chargeGuid);
-            final String status = chargeResponseDto.getStatus();
+        return xPaymentProviderGateway.retrieveCharge(chargeGuid)
+            .whenComplete((chargeResponseDto, ex) -> {
+                if (ex != null) {
+                    logger.error("Error in time of sending charge request with chargeGuid - {}", chargeGuid, ex);
+                }
+            })
+            .thenApply(chargeResponseDto -> {
+                final String status = chargeResponseDto.getStatus();
 
-            logger.info("Current charge (guid = {}) status -> {}", chargeGuid, chargeResponseDto.getStatus());
+                logger.info("Current charge (guid = {}) status -> {}", chargeGuid, chargeResponseDto.getStatus());
 
-            if (XPaymentAdapterStatus.PROCESSING.name().equals(status)) {
-                return false;
-            }
+                if (XPaymentAdapterStatus.PROCESSING.name().equals(status)) {
+                    return false;
+                }
 
-            final XPaymentAdapterResponseMessage responseMessage = new XPaymentAdapterResponseMessage();
-            responseMessage.setPaymentGuid(chargeResponseDto.getOrder());
-            responseMessage.setTransactionRefId(chargeResponseDto.getId());
-            responseMessage.setAmount(chargeResponseDto.getAmount());
-            responseMessage.setCurrency(chargeResponseDto.getCurrency());
-            responseMessage.setStatus(XPaymentAdapterStatus.valueOf(chargeResponseDto.getStatus()));
-            responseMessage.setOccurredAt(OffsetDateTime.now());
-
-            asyncSender.send(responseMessage);
-            return true;
-        } catch (RestClientException ex) {
-            logger.error("Error in time of sending charge request with chargeGuid - {}", chargeGuid, ex);
-            throw ex;
-        }
+                final XPaymentAdapterResponseMessage responseMessage = new XPaymentAdapterResponseMessage();
+                responseMessage.setPaymentGuid(chargeResponseDto.getOrder());
+                responseMessage.setTransactionRefId(chargeResponseDto.getId());
+                responseMessage.setAmount(chargeResponseDto.getAmount());
+                responseMessage.setCurrency(chargeResponseDto.getCurrency());
+                responseMessage.setStatus(XPaymentAdapterStatus.valueOf(chargeResponseDto.getStatus()));
+                responseMessage.setOccurredAt(OffsetDateTime.now());
+
+                asyncSender.send(responseMessage);
+                return true;
+            });
     }
 }
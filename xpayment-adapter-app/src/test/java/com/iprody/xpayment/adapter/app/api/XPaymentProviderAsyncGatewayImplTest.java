@@ -0,0 +1,173 @@
+package com.iprody.xpayment.adapter.app.api;
+
+import com.iprody.xpayment.adapter.app.dto.ChargeResponseDto;
+import com.iprody.xpayment.adapter.app.dto.CreateChargeRequestDto;
+import com.iprody.xpayment.adapter.app.mapper.ChargeResponseMapper;
+import com.iprody.xpayment.adapter.app.mapper.CreateChargeRequestMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mapstruct.factory.Mappers;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/*
+XPaymentProviderAsyncGatewayImpl против заглушки провайдера (HttpServer из JDK): запросы несут заголовки
+авторизации из ApiClient, ответы разбираются в ChargeResponseDto, ошибки провайдера завершают future
+RestClientException, а сверх max-connections запросы ждут в очереди, не блокируя вызывающий поток.
+ */
+class XPaymentProviderAsyncGatewayImplTest {
+
+    private static final String RESPONSE = """
+        {"id":"%s","amount":100.00,"currency":"USD","order":"%s","status":"%s"}
+        """;
+
+    private final Map<String, String> lastHeaders = new ConcurrentHashMap<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private volatile String lastBody;
+    private volatile boolean blockResponses;
+    private HttpServer provider;
+
+    @BeforeEach
+    void startProvider() throws IOException {
+        provider = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        provider.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        provider.createContext("/charges", this::charges);
+        provider.start();
+    }
+
+    @AfterEach
+    void stopProvider() {
+        release.countDown();
+        provider.stop(0);
+    }
+
+    @Test
+    void createCharge_SendsAuthorizedJsonAndReadsResponse() throws Exception {
+        // given
+        XPaymentProviderAsyncGatewayImpl gateway = gateway(10);
+        CreateChargeRequestDto dto = new CreateChargeRequestDto();
+        dto.setAmount(new BigDecimal("100.00"));
+        dto.setCurrency("USD");
+        dto.setOrder(UUID.randomUUID());
+
+        // when
+        ChargeResponseDto result = gateway.createCharge(dto).get(10, TimeUnit.SECONDS);
+
+        // then
+        assertThat(lastHeaders).containsEntry("Authorization", "Basic "
+            + Base64.getEncoder().encodeToString("user:password".getBytes(StandardCharsets.UTF_8)));
+        assertThat(lastHeaders).containsEntry("X-pay-account", "account");
+        assertThat(lastBody).contains("\"amount\":100.00").contains("\"currency\":\"USD\"")
+            .contains(dto.getOrder().toString());
+        assertThat(result.getOrder()).isEqualTo(dto.getOrder());
+        assertThat(result.getStatus()).isEqualTo("PROCESSING");
+    }
+
+    @Test
+    void retrieveCharge_WhenProviderFails_CompletesWithRestClientException() {
+        // given
+        XPaymentProviderAsyncGatewayImpl gateway = gateway(10);
+
+        // when
+        CompletableFuture<ChargeResponseDto> result = gateway.retrieveCharge(UUID.fromString(
+            "00000000-0000-0000-0000-000000000500"));
+
+        // then
+        assertThatThrownBy(() -> result.get(10, TimeUnit.SECONDS))
+            .isInstanceOf(ExecutionException.class)
+            .cause()
+            .isInstanceOf(RestClientException.class)
+            .hasMessageContaining("HTTP 500");
+    }
+
+    @Test
+    void retrieveCharge_OverMaxConnections_QueuesWithoutBlockingCaller() throws Exception {
+        // given
+        XPaymentProviderAsyncGatewayImpl gateway = gateway(2);
+        blockResponses = true;
+
+        // when: вызовы возвращаются сразу, хотя провайдер не отвечает и мест всего два
+        CompletableFuture<?>[] results = new CompletableFuture<?>[5];
+        final long started = System.nanoTime();
+        for (int i = 0; i < results.length; i++) {
+            results[i] = gateway.retrieveCharge(UUID.randomUUID());
+        }
+        final long callMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+        Thread.sleep(200);
+
+        // then
+        assertThat(callMs).isLessThan(1000);
+        assertThat(results).noneMatch(CompletableFuture::isDone);
+        assertThat(inFlight.get()).isEqualTo(2);
+
+        release.countDown();
+        CompletableFuture.allOf(results).get(10, TimeUnit.SECONDS);
+        assertThat(maxInFlight.get()).isEqualTo(2);
+    }
+
+    private XPaymentProviderAsyncGatewayImpl gateway(int maxConnections) {
+        final XPaymentRestClientConfig config = new XPaymentRestClientConfig();
+        final RestTemplate restTemplate = new RestTemplate();
+        final ApiClient apiClient = config.xPaymentApiClient("http://localhost:" + provider.getAddress().getPort(),
+            "user", "password", "account", restTemplate);
+        return new XPaymentProviderAsyncGatewayImpl(config.xPaymentHttpClient(2000), apiClient, restTemplate,
+            Mappers.getMapper(CreateChargeRequestMapper.class), Mappers.getMapper(ChargeResponseMapper.class),
+            10000, maxConnections);
+    }
+
+    private void charges(HttpExchange exchange) throws IOException {
+        maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+        try {
+            exchange.getRequestHeaders().forEach((name, values) -> lastHeaders.put(name, values.get(0)));
+            lastBody = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            if (blockResponses) {
+                release.await(10, TimeUnit.SECONDS);
+            }
+            // До ответа: следующий запрос клиента может прийти, как только ответ получен
+            inFlight.decrementAndGet();
+            final String path = exchange.getRequestURI().getPath();
+            if (path.endsWith("500")) {
+                respond(exchange, 500, "{\"message\":\"provider is unavailable\"}");
+                return;
+            }
+            final String order = lastBody.isEmpty()
+                ? UUID.randomUUID().toString()
+                : lastBody.replaceAll(".*\"order\":\"([^\"]+)\".*", "$1").trim();
+            respond(exchange, 200, RESPONSE.formatted(UUID.randomUUID(), order, "PROCESSING"));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        final byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+}
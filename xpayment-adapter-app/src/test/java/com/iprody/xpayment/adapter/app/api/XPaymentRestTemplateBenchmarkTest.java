@@ -0,0 +1,135 @@
+package com.iprody.xpayment.adapter.app.api;
+
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/*
+Бенчмарк RestTemplate клиента x-payment-api на локальной заглушке провайдера (HttpServer из JDK):
+одни и те же GET /charges/{id} выполняются параллельно через RestTemplate по умолчанию
+(SimpleClientHttpRequestFactory) и через пул соединений из XPaymentRestClientConfig.
+Выводится пропускная способность и число TCP-соединений, которые увидела заглушка.
+
+Тест долгий, поэтому в обычной сборке не запускается:
+    mvn -pl xpayment-adapter-app -am test -Dtest=XPaymentRestTemplateBenchmarkTest -Dbenchmark=true
+        -Dsurefire.failIfNoSpecifiedTests=false
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class XPaymentRestTemplateBenchmarkTest {
+
+    private static final int REQUESTS = 20_000;
+    private static final int CONCURRENCY = 50;
+    private static final long PROVIDER_LATENCY_MS = 2;
+    private static final String RESPONSE = """
+        {"id":"%s","amount":100.00,"currency":"USD","status":"SUCCEEDED"}
+        """;
+
+    private final Set<InetSocketAddress> connections = ConcurrentHashMap.newKeySet();
+    private HttpServer provider;
+    private String baseUrl;
+
+    @BeforeAll
+    void startProvider() throws Exception {
+        // Без TCP_NODELAY заголовки и тело ответа ждут delayed ACK клиента, и замер упирается в него
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        provider = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        provider.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        provider.createContext("/charges/", exchange -> {
+            connections.add(exchange.getRemoteAddress());
+            try {
+                Thread.sleep(PROVIDER_LATENCY_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            final byte[] body = RESPONSE.formatted(UUID.randomUUID()).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        provider.start();
+        baseUrl = "http://localhost:" + provider.getAddress().getPort();
+    }
+
+    @AfterAll
+    void stopProvider() {
+        provider.stop(0);
+    }
+
+    @Test
+    void pooledRestTemplate_ReusesConnections() throws Exception {
+        final Result simple = run("SimpleClientHttpRequestFactory", new RestTemplate());
+
+        final XPaymentRestClientConfig config = new XPaymentRestClientConfig();
+        final PoolingHttpClientConnectionManager connectionManager = config.xPaymentConnectionManager(
+            CONCURRENCY, CONCURRENCY, 2000, 10000, 2000, new SimpleMeterRegistry());
+        try (CloseableHttpClient httpClient = config.xPaymentPooledHttpClient(connectionManager, 10000, 1000, 30)) {
+            final RestTemplate pooledTemplate = config.xPaymentRestTemplate(httpClient);
+            final Result pooled = run("Pooled HttpClient 5", pooledTemplate);
+
+            // Пул не открывает больше соединений, чем запросов выполняется одновременно
+            assertThat(pooled.connections()).isLessThanOrEqualTo(CONCURRENCY);
+            assertThat(pooled.connections()).isLessThanOrEqualTo(simple.connections());
+        }
+    }
+
+    private Result run(String name, RestTemplate restTemplate) throws Exception {
+        // Прогрев: JIT и установление соединений не попадают в замер
+        execute(restTemplate, REQUESTS / 10);
+        connections.clear();
+
+        final long started = System.nanoTime();
+        final int failed = execute(restTemplate, REQUESTS);
+        final long elapsedMs = (System.nanoTime() - started) / 1_000_000;
+
+        final Result result = new Result(elapsedMs, connections.size());
+        System.out.printf("%-32s %6d requests in %6d ms, %8.0f req/s, %5d connections, %d failed%n",
+            name, REQUESTS, elapsedMs, REQUESTS * 1000.0 / Math.max(elapsedMs, 1), result.connections(), failed);
+        assertThat(failed).isZero();
+        return result;
+    }
+
+    private int execute(RestTemplate restTemplate, int requests) throws Exception {
+        final AtomicInteger failed = new AtomicInteger();
+        final Semaphore inFlight = new Semaphore(CONCURRENCY);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < requests; i++) {
+                inFlight.acquire();
+                final Future<?> ignored = executor.submit(() -> {
+                    try {
+                        restTemplate.getForObject(baseUrl + "/charges/{id}", String.class, UUID.randomUUID());
+                    } catch (RuntimeException e) {
+                        failed.incrementAndGet();
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            }
+        }
+        return failed.get();
+    }
+
+    private record Result(long elapsedMs, int connections) {
+    }
+}
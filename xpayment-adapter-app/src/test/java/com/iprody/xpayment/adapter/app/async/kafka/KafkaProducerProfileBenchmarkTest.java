@@ -0,0 +1,137 @@
+package com.iprody.xpayment.adapter.app.async.kafka;
+
+import com.iprody.common.async.XPaymentAdapterResponseMessage;
+import com.iprody.common.async.XPaymentAdapterStatus;
+import com.iprody.common.async.kafka.KafkaSendMetrics;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.ConfigurationPropertySources;
+import org.springframework.boot.env.YamlPropertySourceLoader;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+import org.springframework.kafka.test.EmbeddedKafkaKraftBroker;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/*
+Бенчмарк общего профиля producer (kafka-producer.yaml из модуля common) на встроенном брокере Kafka:
+одни и те же ответы XPayment Adapter отправляются producer'ом с настройками по умолчанию
+и producer'ом с профилем. Выводится пропускная способность и среднее время подтверждения отправки.
+
+Тест долгий, поэтому в обычной сборке не запускается:
+    mvn -pl xpayment-adapter-app -am test -Dtest=KafkaProducerProfileBenchmarkTest -Dbenchmark=true
+        -Dsurefire.failIfNoSpecifiedTests=false
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class KafkaProducerProfileBenchmarkTest {
+
+    private static final int MESSAGES = 200_000;
+    private static final int PARTITIONS = 3;
+
+    private EmbeddedKafkaKraftBroker broker;
+
+    @BeforeAll
+    void startBroker() {
+        broker = new EmbeddedKafkaKraftBroker(1, PARTITIONS, "benchmark.defaults", "benchmark.profile");
+        broker.afterPropertiesSet();
+    }
+
+    @AfterAll
+    void stopBroker() {
+        broker.destroy();
+    }
+
+    @Test
+    void producerProfile_SendsFasterThanDefaults() throws Exception {
+        final double defaults = run("Kafka client defaults", "benchmark.defaults", new KafkaProperties());
+        final double profile = run("kafka-producer.yaml", "benchmark.profile", producerProfile());
+
+        System.out.printf("Profile / defaults: %.2fx%n", profile / defaults);
+        assertThat(profile).isPositive();
+    }
+
+    private double run(String name, String topic, KafkaProperties properties) throws Exception {
+        final Map<String, Object> config = new HashMap<>(properties.buildProducerProperties(null));
+        config.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, broker.getBrokersAsString());
+        config.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        config.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, JsonSerializer.class);
+
+        final DefaultKafkaProducerFactory<String, XPaymentAdapterResponseMessage> factory =
+            new DefaultKafkaProducerFactory<>(config);
+        final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        final KafkaSendMetrics sendMetrics = new KafkaSendMetrics(registry);
+        try {
+            final KafkaTemplate<String, XPaymentAdapterResponseMessage> template = new KafkaTemplate<>(factory);
+
+            // Прогрев: метаданные топика, соединения и JIT не попадают в замер
+            send(sendMetrics, template, topic, MESSAGES / 10);
+            registry.clear();
+
+            final long started = System.nanoTime();
+            send(sendMetrics, template, topic, MESSAGES);
+            final long elapsedMs = Math.max((System.nanoTime() - started) / 1_000_000, 1);
+
+            final Timer timer = registry.get(KafkaSendMetrics.METRIC_NAME).tag("outcome", "success").timer();
+            final double throughput = MESSAGES * 1000.0 / elapsedMs;
+            System.out.printf("%-24s %7d messages in %6d ms, %9.0f msgs/s, mean ack %6.2f ms%n",
+                name, MESSAGES, elapsedMs, throughput, timer.mean(TimeUnit.MILLISECONDS));
+            assertThat(timer.count()).isEqualTo(MESSAGES);
+            return throughput;
+        } finally {
+            factory.destroy();
+        }
+    }
+
+    private void send(KafkaSendMetrics sendMetrics, KafkaTemplate<String, XPaymentAdapterResponseMessage> template,
+        String topic, int messages) {
+        final List<CompletableFuture<SendResult<String, XPaymentAdapterResponseMessage>>> results =
+            new ArrayList<>(messages);
+        for (int i = 0; i < messages; i++) {
+            final XPaymentAdapterResponseMessage msg = response();
+            results.add(sendMetrics.send(template, topic, msg.getPaymentGuid().toString(), msg));
+        }
+        CompletableFuture.allOf(results.toArray(CompletableFuture[]::new)).join();
+    }
+
+    // Настройки producer из общего профиля так, как их применяет Spring Boot в приложении
+    private static KafkaProperties producerProfile() throws Exception {
+        final YamlPropertySourceLoader loader = new YamlPropertySourceLoader();
+        final Binder binder = new Binder(ConfigurationPropertySources.from(
+            loader.load("kafka-producer", new ClassPathResource("kafka-producer.yaml"))));
+        return binder.bind("spring.kafka", KafkaProperties.class).get();
+    }
+
+    private static XPaymentAdapterResponseMessage response() {
+        final XPaymentAdapterResponseMessage msg = new XPaymentAdapterResponseMessage();
+        msg.setPaymentGuid(UUID.randomUUID());
+        msg.setTransactionRefId(UUID.randomUUID());
+        msg.setAmount(new BigDecimal("100.00"));
+        msg.setCurrency("USD");
+        msg.setStatus(XPaymentAdapterStatus.SUCCEEDED);
+        msg.setOccurredAt(OffsetDateTime.now());
+        return msg;
+    }
+}
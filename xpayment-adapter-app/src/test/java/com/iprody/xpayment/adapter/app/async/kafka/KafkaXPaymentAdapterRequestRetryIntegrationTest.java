@@ -0,0 +1,129 @@
+package com.iprody.xpayment.adapter.app.async.kafka;
+
+import com.iprody.common.async.MessageHandler;
+import com.iprody.common.async.XPaymentAdapterRequestMessage;
+import com.iprody.common.async.kafka.XPaymentAdapterRequestMessageDeserializer;
+import com.iprody.common.async.kafka.XPaymentAdapterRequestMessageSerializer;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/*
+Запросы, которые KafkaXPaymentAdapterRequestListenerAdapter не смог обработать, попадают в DLT:
+- некорректный запрос (отрицательная сумма) - через механизм @RetryableTopic;
+- запрос, обработка которого в KeyOrderedExecutor завершилась непредвиденной ошибкой, - из самой задачи.
+Приложение отправляет ответы, а DLT получает запрос через тот же KafkaTemplate, поэтому тест проверяет,
+что запрос сериализуется и читается из DLT целиком.
+ */
+@SpringBootTest(properties = "spring.kafka.bootstrap-servers=${spring.embedded.kafka.brokers}")
+@EmbeddedKafka(partitions = 1, topics = {"xpayment-adapter.requests", "xpayment-adapter.requests-dlt"})
+class KafkaXPaymentAdapterRequestRetryIntegrationTest {
+
+    private static final String TOPIC = "xpayment-adapter.requests";
+    private static final String DLT = TOPIC + "-dlt";
+
+    @Autowired
+    private EmbeddedKafkaBroker broker;
+
+    @MockitoBean
+    private MessageHandler<XPaymentAdapterRequestMessage> handler;
+
+    @Test
+    void consume_InvalidRequest_IsPublishedToDlt() {
+        // given
+        XPaymentAdapterRequestMessage message = request(new BigDecimal("-10.00"));
+
+        // when
+        send(message);
+
+        // then
+        XPaymentAdapterRequestMessage result = awaitDlt(message.getPaymentGuid());
+        assertThat(result.getAmount()).isEqualByComparingTo(message.getAmount());
+        assertThat(result.getCurrency()).isEqualTo(message.getCurrency());
+        verify(handler, never()).handle(any());
+    }
+
+    @Test
+    void consume_WhenHandlerFailsUnexpectedly_IsPublishedToDlt() {
+        // given
+        XPaymentAdapterRequestMessage message = request(new BigDecimal("10.00"));
+        doThrow(new IllegalArgumentException("No enum constant UNKNOWN"))
+            .when(handler).handle(argThat(m -> message.getPaymentGuid().equals(m.getPaymentGuid())));
+
+        // when
+        send(message);
+
+        // then
+        XPaymentAdapterRequestMessage result = awaitDlt(message.getPaymentGuid());
+        assertThat(result.getAmount()).isEqualByComparingTo(message.getAmount());
+        verify(handler).handle(any());
+    }
+
+    // Читает DLT с начала, пока не встретится запись платежа
+    private XPaymentAdapterRequestMessage awaitDlt(UUID paymentGuid) {
+        try (Consumer<String, XPaymentAdapterRequestMessage> consumer = dltConsumer()) {
+            broker.consumeFromAnEmbeddedTopic(consumer, DLT);
+            final long deadline = System.nanoTime() + Duration.ofSeconds(30).toNanos();
+            while (System.nanoTime() < deadline) {
+                for (final ConsumerRecord<String, XPaymentAdapterRequestMessage> record
+                    : KafkaTestUtils.getRecords(consumer, Duration.ofSeconds(1), 1)) {
+                    if (paymentGuid.toString().equals(record.key())) {
+                        assertThat(record.value().getPaymentGuid()).isEqualTo(paymentGuid);
+                        return record.value();
+                    }
+                }
+            }
+        }
+        throw new AssertionError("Request " + paymentGuid + " is not published to " + DLT);
+    }
+
+    private static XPaymentAdapterRequestMessage request(BigDecimal amount) {
+        final XPaymentAdapterRequestMessage message = new XPaymentAdapterRequestMessage();
+        message.setPaymentGuid(UUID.randomUUID());
+        message.setAmount(amount);
+        message.setCurrency("USD");
+        message.setOccurredAt(OffsetDateTime.now());
+        return message;
+    }
+
+    private void send(XPaymentAdapterRequestMessage message) {
+        final DefaultKafkaProducerFactory<String, XPaymentAdapterRequestMessage> factory =
+            new DefaultKafkaProducerFactory<>(KafkaTestUtils.producerProps(broker),
+                new StringSerializer(), new XPaymentAdapterRequestMessageSerializer());
+        try {
+            new KafkaTemplate<>(factory).send(TOPIC, message.getPaymentGuid().toString(), message).join();
+        } finally {
+            factory.destroy();
+        }
+    }
+
+    private Consumer<String, XPaymentAdapterRequestMessage> dltConsumer() {
+        final Map<String, Object> props = KafkaTestUtils.consumerProps("dlt-test-" + UUID.randomUUID(), "false", broker);
+        return new DefaultKafkaConsumerFactory<>(props,
+            new StringDeserializer(), new XPaymentAdapterRequestMessageDeserializer()).createConsumer();
+    }
+}
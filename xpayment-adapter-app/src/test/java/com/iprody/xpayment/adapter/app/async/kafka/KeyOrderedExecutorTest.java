@@ -0,0 +1,148 @@
+package com.iprody.xpayment.adapter.app.async.kafka;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class KeyOrderedExecutorTest {
+
+    private static final int MAX_IN_FLIGHT = 4;
+
+    private final KeyOrderedExecutor executor = new KeyOrderedExecutor(MAX_IN_FLIGHT);
+
+    @AfterEach
+    void tearDown() {
+        executor.close();
+    }
+
+    @Test
+    void execute_TasksWithSameKey_RunInSubmissionOrder() throws Exception {
+        // given
+        List<Integer> completed = Collections.synchronizedList(new ArrayList<>());
+
+        // when
+        for (int i = 0; i < 50; i++) {
+            final int index = i;
+            executor.execute("payment", () -> {
+                sleepMicros(ThreadLocalRandom.current().nextInt(500));
+                completed.add(index);
+            });
+        }
+
+        // then
+        waitUntil(() -> completed.size() == 50);
+        assertThat(completed).containsExactlyElementsOf(IntStream.range(0, 50).boxed().toList());
+    }
+
+    @Test
+    void execute_TasksWithDifferentKeys_RunInParallel() throws Exception {
+        // given: каждая задача ждёт, пока стартуют все остальные - последовательно они не завершатся
+        CountDownLatch started = new CountDownLatch(MAX_IN_FLIGHT);
+        CountDownLatch finished = new CountDownLatch(MAX_IN_FLIGHT);
+
+        // when
+        for (int i = 0; i < MAX_IN_FLIGHT; i++) {
+            executor.execute("payment-" + i, () -> {
+                started.countDown();
+                if (await(started)) {
+                    finished.countDown();
+                }
+            });
+        }
+
+        // then
+        assertThat(finished.await(10, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void execute_WhenMaxInFlightReached_BlocksUntilTaskCompletes() throws Exception {
+        // given
+        CountDownLatch release = new CountDownLatch(1);
+        for (int i = 0; i < MAX_IN_FLIGHT; i++) {
+            executor.execute("payment-" + i, () -> await(release));
+        }
+
+        // when
+        CompletableFuture<Void> submitted = CompletableFuture.runAsync(() -> {
+            try {
+                executor.execute("payment-next", () -> { });
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        // then
+        Thread.sleep(200);
+        assertThat(submitted).isNotDone();
+        assertThat(executor.availablePermits()).isZero();
+
+        release.countDown();
+        submitted.get(10, TimeUnit.SECONDS);
+        waitUntil(() -> executor.availablePermits() == MAX_IN_FLIGHT);
+    }
+
+    @Test
+    void execute_FailedTask_ReleasesPermitAndKeepsKeyChain() throws Exception {
+        // given
+        List<String> completed = Collections.synchronizedList(new ArrayList<>());
+
+        // when
+        executor.execute("payment", () -> {
+            throw new IllegalStateException("provider is unavailable");
+        });
+        executor.execute("payment", () -> completed.add("next"));
+
+        // then
+        waitUntil(() -> executor.availablePermits() == MAX_IN_FLIGHT);
+        assertThat(completed).containsExactly("next");
+    }
+
+    @Test
+    void execute_AfterClose_RejectsTaskAndReleasesPermit() {
+        // given
+        executor.close();
+
+        // when / then
+        assertThatThrownBy(() -> executor.execute("payment", () -> { }))
+            .isInstanceOf(RejectedExecutionException.class);
+        assertThat(executor.availablePermits()).isEqualTo(MAX_IN_FLIGHT);
+    }
+
+    private static boolean await(CountDownLatch latch) {
+        try {
+            return latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("condition is not met in time").isLessThan(deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    private static void sleepMicros(long micros) {
+        try {
+            TimeUnit.MICROSECONDS.sleep(micros);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.iprody.xpayment.adapter.app.checkstate.handler;
+
+import com.iprody.common.async.AsyncSender;
+import com.iprody.common.async.XPaymentAdapterResponseMessage;
+import com.iprody.common.async.XPaymentAdapterStatus;
+import com.iprody.xpayment.adapter.app.api.XPaymentProviderAsyncGateway;
+import com.iprody.xpayment.adapter.app.dto.ChargeResponseDto;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.web.client.RestClientException;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class PaymentStatusCheckHandlerImplTest {
+
+    @Mock
+    private XPaymentProviderAsyncGateway gateway;
+
+    @Mock
+    private AsyncSender<XPaymentAdapterResponseMessage> asyncSender;
+
+    @InjectMocks
+    private PaymentStatusCheckHandlerImpl handler;
+
+    @Test
+    void handleAsync_WhenChargeIsProcessing_CompletesFalseWithoutNotification() {
+        // given
+        UUID chargeGuid = UUID.randomUUID();
+        when(gateway.retrieveCharge(chargeGuid))
+            .thenReturn(CompletableFuture.completedFuture(charge(chargeGuid, "PROCESSING")));
+
+        // when
+        boolean result = handler.handleAsync(chargeGuid).join();
+
+        // then
+        assertThat(result).isFalse();
+        verify(asyncSender, never()).send(any());
+    }
+
+    @Test
+    void handleAsync_WhenChargeSucceeded_SendsResponseAndCompletesTrue() {
+        // given
+        UUID chargeGuid = UUID.randomUUID();
+        ChargeResponseDto charge = charge(chargeGuid, "SUCCEEDED");
+        when(gateway.retrieveCharge(chargeGuid)).thenReturn(CompletableFuture.completedFuture(charge));
+
+        // when
+        boolean result = handler.handleAsync(chargeGuid).join();
+
+        // then
+        assertThat(result).isTrue();
+        ArgumentCaptor<XPaymentAdapterResponseMessage> captor =
+            ArgumentCaptor.forClass(XPaymentAdapterResponseMessage.class);
+        verify(asyncSender).send(captor.capture());
+        XPaymentAdapterResponseMessage message = captor.getValue();
+        assertThat(message.getPaymentGuid()).isEqualTo(charge.getOrder());
+        assertThat(message.getTransactionRefId()).isEqualTo(chargeGuid);
+        assertThat(message.getAmount()).isEqualByComparingTo(charge.getAmount());
+        assertThat(message.getStatus()).isEqualTo(XPaymentAdapterStatus.SUCCEEDED);
+        assertThat(message.getOccurredAt()).isNotNull();
+    }
+
+    @Test
+    void handleAsync_WhenProviderFails_CompletesWithRestClientException() {
+        // given
+        UUID chargeGuid = UUID.randomUUID();
+        when(gateway.retrieveCharge(chargeGuid))
+            .thenReturn(CompletableFuture.failedFuture(new RestClientException("GET /charges/{id} failed")));
+
+        // when / then
+        assertThatThrownBy(() -> handler.handleAsync(chargeGuid).join())
+            .isInstanceOf(CompletionException.class)
+            .hasCauseInstanceOf(RestClientException.class);
+        verify(asyncSender, never()).send(any());
+    }
+
+    @Test
+    void handle_WhenProviderFails_ThrowsRestClientException() {
+        // given
+        UUID chargeGuid = UUID.randomUUID();
+        when(gateway.retrieveCharge(chargeGuid))
+            .thenReturn(CompletableFuture.failedFuture(new RestClientException("GET /charges/{id} failed")));
+
+        // when / then
+        assertThatThrownBy(() -> handler.handle(chargeGuid)).isInstanceOf(RestClientException.class);
+    }
+
+    private static ChargeResponseDto charge(UUID id, String status) {
+        ChargeResponseDto charge = new ChargeResponseDto();
+        charge.setId(id);
+        charge.setOrder(UUID.randomUUID());
+        charge.setAmount(new BigDecimal("100.00"));
+        charge.setCurrency("USD");
+        charge.setStatus(status);
+        return charge;
+    }
+}